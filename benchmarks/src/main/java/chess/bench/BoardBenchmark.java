@@ -0,0 +1,165 @@
+package chess.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * BoardBenchmark
+ *
+ * Move validation and attack detection in BoardModel, on an opening, a
+ * tactical middlegame and an endgame position. Each invocation sweeps a
+ * fixed list of queries, so scores are sweeps per second; the query count
+ * per position is printed at setup.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BoardBenchmark {
+
+    @Param({ "opening", "middlegame", "endgame" })
+    public String position;
+
+    /** Twenty plies of a Ruy Lopez, including both castlings. */
+    private static final String[] GAME = {
+        "e2e4", "e7e5", "g1f3", "b8c6", "f1b5", "a7a6", "b5a4", "g8f6", "e1g1", "f8e7",
+        "f1e1", "b7b5", "a4b3", "d7d6", "c2c3", "e8g8", "h2h3", "c6a5", "b3c2", "c7c5"
+    };
+
+    private Object model;
+    private char[][] board;
+    private char[][] copy;
+    private int sideToMove;
+
+    /** Every from/to pair as (r1, c1, r2, c2), packed 4 ints per query. */
+    private int[] allPairs;
+    /** Pseudo-legal moves of the side to move, packed the same way. */
+    private int[] candidates;
+
+    private Object replayModel;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Throwable {
+        String fen;
+        switch (position) {
+            case "opening":
+                fen = "r1bqkbnr/pppp1ppp/2n5/4p3/4P3/5N2/PPPP1PPP/RNBQKB1R w KQkq - 2 3";
+                break;
+            case "middlegame":
+                fen = "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1";
+                break;
+            case "endgame":
+                fen = "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1";
+                break;
+            default:
+                throw new IllegalArgumentException(position);
+        }
+        sideToMove = fen.split(" ")[1].equals("w") ? 0 : 1;
+        model = ClientApi.newBoardModel(fen);
+        board = (char[][]) ClientApi.BOARD.invokeExact(model);
+        copy = (char[][]) ClientApi.GET_BOARD_COPY.invokeExact(model);
+
+        allPairs = new int[64 * 64 * 4];
+        List<int[]> moves = new ArrayList<>();
+        int k = 0;
+        for (int from = 0; from < 64; from++) {
+            for (int to = 0; to < 64; to++) {
+                int r1 = from / 8, c1 = from % 8, r2 = to / 8, c2 = to % 8;
+                allPairs[k++] = r1; allPairs[k++] = c1; allPairs[k++] = r2; allPairs[k++] = c2;
+                char p = board[r1][c1];
+                boolean own = (p != '.') && (Character.isUpperCase(p) == (sideToMove == 0));
+                if (own && (boolean) ClientApi.IS_LEGAL_MOVE_BASIC.invokeExact(model, r1, c1, r2, c2)) {
+                    moves.add(new int[] { r1, c1, r2, c2 });
+                }
+            }
+        }
+        candidates = new int[moves.size() * 4];
+        for (int i = 0; i < moves.size(); i++) System.arraycopy(moves.get(i), 0, candidates, i * 4, 4);
+        System.out.printf("%n%s: %d from/to pairs, %d candidate moves%n", position, 64 * 64, moves.size());
+
+        replayModel = ClientApi.newBoardModel(null);
+    }
+
+    /** Geometry check for every from/to pair on the board. */
+    @Benchmark
+    public int isLegalMoveBasic() throws Throwable {
+        int legal = 0;
+        int[] q = allPairs;
+        for (int i = 0; i < q.length; i += 4) {
+            if ((boolean) ClientApi.IS_LEGAL_MOVE_BASIC.invokeExact(model, q[i], q[i + 1], q[i + 2], q[i + 3])) legal++;
+        }
+        return legal;
+    }
+
+    /** Attack test for all 64 squares by both colors, on the live board. */
+    @Benchmark
+    public int isSquareAttacked() throws Throwable {
+        int attacked = 0;
+        for (int sq = 0; sq < 64; sq++) {
+            if ((boolean) ClientApi.IS_SQUARE_ATTACKED.invokeExact(model, board, sq / 8, sq % 8, 0)) attacked++;
+            if ((boolean) ClientApi.IS_SQUARE_ATTACKED.invokeExact(model, board, sq / 8, sq % 8, 1)) attacked++;
+        }
+        return attacked;
+    }
+
+    /** Same as {@link #isSquareAttacked} on a detached copy, which takes the char[][] path. */
+    @Benchmark
+    public int isSquareAttackedCopy() throws Throwable {
+        int attacked = 0;
+        for (int sq = 0; sq < 64; sq++) {
+            if ((boolean) ClientApi.IS_SQUARE_ATTACKED.invokeExact(model, copy, sq / 8, sq % 8, 0)) attacked++;
+            if ((boolean) ClientApi.IS_SQUARE_ATTACKED.invokeExact(model, copy, sq / 8, sq % 8, 1)) attacked++;
+        }
+        return attacked;
+    }
+
+    /** Self-check test for every pseudo-legal move of the side to move. */
+    @Benchmark
+    public int moveLeavesInCheck() throws Throwable {
+        int illegal = 0;
+        int[] q = candidates;
+        for (int i = 0; i < q.length; i += 4) {
+            if ((boolean) ClientApi.MOVE_LEAVES_IN_CHECK.invokeExact(model, board, sideToMove,
+                    q[i], q[i + 1], q[i + 2], q[i + 3])) illegal++;
+        }
+        return illegal;
+    }
+
+    /** Same as {@link #moveLeavesInCheck} on a detached copy, which simulates on a scratch board. */
+    @Benchmark
+    public int moveLeavesInCheckCopy() throws Throwable {
+        int illegal = 0;
+        int[] q = candidates;
+        for (int i = 0; i < q.length; i += 4) {
+            if ((boolean) ClientApi.MOVE_LEAVES_IN_CHECK.invokeExact(model, copy, sideToMove,
+                    q[i], q[i + 1], q[i + 2], q[i + 3])) illegal++;
+        }
+        return illegal;
+    }
+
+    /** Resets the board and replays a twenty-ply game through applyOpponentMove. */
+    @Benchmark
+    public void applyOpponentMove(Blackhole bh) throws Throwable {
+        Object m = replayModel;
+        ClientApi.INIT_BOARD_MODEL.invokeExact(m);
+        for (String mv : GAME) ClientApi.APPLY_OPPONENT_MOVE.invokeExact(m, mv);
+        bh.consume(m);
+    }
+}
@@ -0,0 +1,75 @@
+package chess.bench;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+/**
+ * ClientApi
+ *
+ * Method handles onto the client classes. The client lives in the default
+ * package, which Java code in a named package cannot reference, and JMH
+ * refuses benchmarks in the default package. The handles are static final
+ * and typed on Object, so the JIT inlines them like direct calls.
+ */
+final class ClientApi {
+    private ClientApi() {}
+
+    static final MethodHandle NEW_BOARD_MODEL;
+    static final MethodHandle INIT_BOARD_MODEL;
+    static final MethodHandle LOAD_FEN;
+    static final MethodHandle BOARD;
+    static final MethodHandle GET_BOARD_COPY;
+    static final MethodHandle IS_LEGAL_MOVE_BASIC;
+    static final MethodHandle IS_SQUARE_ATTACKED;
+    static final MethodHandle MOVE_LEAVES_IN_CHECK;
+    static final MethodHandle APPLY_OPPONENT_MOVE;
+    static final MethodHandle GET_ACK_FOR;
+    static final MethodHandle MESSAGE_TYPE_OF;
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            Class<?> model = Class.forName("BoardModel");
+            Class<?> protocol = Class.forName("Protocol");
+            MethodType modelVoid = MethodType.methodType(void.class, Object.class);
+
+            NEW_BOARD_MODEL = lookup.findConstructor(model, MethodType.methodType(void.class))
+                    .asType(MethodType.methodType(Object.class));
+            INIT_BOARD_MODEL = lookup.findVirtual(model, "initBoardModel", MethodType.methodType(void.class))
+                    .asType(modelVoid);
+            LOAD_FEN = lookup.findVirtual(model, "loadFen", MethodType.methodType(void.class, String.class))
+                    .asType(MethodType.methodType(void.class, Object.class, String.class));
+            BOARD = lookup.findGetter(model, "board", char[][].class)
+                    .asType(MethodType.methodType(char[][].class, Object.class));
+            GET_BOARD_COPY = lookup.findVirtual(model, "getBoardCopy", MethodType.methodType(char[][].class))
+                    .asType(MethodType.methodType(char[][].class, Object.class));
+            IS_LEGAL_MOVE_BASIC = lookup.findVirtual(model, "isLegalMoveBasic",
+                    MethodType.methodType(boolean.class, int.class, int.class, int.class, int.class))
+                    .asType(MethodType.methodType(boolean.class, Object.class, int.class, int.class, int.class, int.class));
+            IS_SQUARE_ATTACKED = lookup.findVirtual(model, "isSquareAttacked",
+                    MethodType.methodType(boolean.class, char[][].class, int.class, int.class, int.class))
+                    .asType(MethodType.methodType(boolean.class, Object.class, char[][].class, int.class, int.class, int.class));
+            MOVE_LEAVES_IN_CHECK = lookup.findVirtual(model, "moveLeavesInCheck",
+                    MethodType.methodType(boolean.class, char[][].class, int.class, int.class, int.class, int.class, int.class))
+                    .asType(MethodType.methodType(boolean.class, Object.class, char[][].class,
+                            int.class, int.class, int.class, int.class, int.class));
+            APPLY_OPPONENT_MOVE = lookup.findVirtual(model, "applyOpponentMove",
+                    MethodType.methodType(void.class, String.class))
+                    .asType(MethodType.methodType(void.class, Object.class, String.class));
+            GET_ACK_FOR = lookup.findStatic(protocol, "getAckFor",
+                    MethodType.methodType(String.class, String.class));
+            Class<?> messageType = Class.forName("MessageType");
+            MESSAGE_TYPE_OF = lookup.findStatic(messageType, "of", MethodType.methodType(messageType, String.class))
+                    .asType(MethodType.methodType(Object.class, String.class));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    static Object newBoardModel(String fen) throws Throwable {
+        Object m = (Object) NEW_BOARD_MODEL.invokeExact();
+        if (fen != null) LOAD_FEN.invokeExact(m, fen);
+        return m;
+    }
+}
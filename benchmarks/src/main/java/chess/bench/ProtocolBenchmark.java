@@ -0,0 +1,131 @@
+package chess.bench;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * ProtocolBenchmark
+ *
+ * Handling of incoming server lines: choosing the ACK code with
+ * Protocol.getAckFor, and classifying the line with MessageType.of, against
+ * the startsWith chain ChessClient.parseServerMessage used before it.
+ * Scores are per message, over a mix
+ * weighted like a game in progress: mostly clock ticks, heartbeats and
+ * moves, with occasional lobby and end-of-game traffic.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProtocolBenchmark {
+    private static final int MIX_SIZE = 1024;
+
+    private String[] mix;
+
+    @Setup
+    public void setUp() {
+        List<String> lines = new ArrayList<>();
+        Random rnd = new Random(42);
+        String files = "abcdefgh";
+        for (int i = 0; i < MIX_SIZE; i++) {
+            int roll = rnd.nextInt(100);
+            String mv = "" + files.charAt(rnd.nextInt(8)) + (1 + rnd.nextInt(8))
+                           + files.charAt(rnd.nextInt(8)) + (1 + rnd.nextInt(8));
+            if (roll < 35) lines.add("TIME " + rnd.nextInt(600));
+            else if (roll < 55) lines.add("PNG");
+            else if (roll < 70) lines.add("OPP_MV " + mv);
+            else if (roll < 82) lines.add("OK_MV");
+            else if (roll < 85) lines.add("CHK");
+            else if (roll < 89) lines.add("ROOMLIST 3 1:alice:1 2:bob:2 3:carol:1");
+            else if (roll < 91) lines.add("START bob white");
+            else if (roll < 92) lines.add("RESUME bob black");
+            else if (roll < 93) lines.add("HISTORY e2e4 e7e5 g1f3 b8c6 f1b5");
+            else if (roll < 94) lines.add("WAITING Room 2");
+            else if (roll < 95) lines.add("LOBBY");
+            else if (roll < 96) lines.add("DRW_OFF");
+            else if (roll < 97) lines.add("OPP_RES");
+            else if (roll < 98) lines.add("WIN_CHKM");
+            else if (roll < 99) lines.add("ERR Illegal move");
+            else lines.add("WAIT_CONN");
+        }
+        Collections.shuffle(lines, rnd);
+        mix = lines.toArray(new String[0]);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MIX_SIZE)
+    public void getAckFor(Blackhole bh) throws Throwable {
+        for (String line : mix) bh.consume((String) ClientApi.GET_ACK_FOR.invokeExact(line));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MIX_SIZE)
+    public void tableDispatch(Blackhole bh) throws Throwable {
+        for (String line : mix) bh.consume((Object) ClientApi.MESSAGE_TYPE_OF.invokeExact(line));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MIX_SIZE)
+    public void parseDispatch(Blackhole bh) {
+        for (String line : mix) bh.consume(classify(line));
+    }
+
+    /**
+     * Copy of the decision chain ChessClient.parseServerMessage used before
+     * MessageType, minus the Swing side effects: trim, then startsWith tests
+     * in the same order, plus the payload extraction each branch performs.
+     */
+    private static Object classify(String msg) {
+        String u = msg.trim();
+        if (u.equals("FULL")) return 1;
+        if (u.equals("OPP_KICK")) return 2;
+        if (u.startsWith("TIME")) {
+            try {
+                return Integer.parseInt(u.substring(4).trim());
+            } catch (NumberFormatException e) {
+                return 3;
+            }
+        }
+        if (u.startsWith("RESUME")) return u.split("\\s+");
+        if (u.startsWith("OPP_RESUME")) return 4;
+        if (u.startsWith("HISTORY")) return u.substring(7).trim().split(" ");
+        if (u.startsWith("WAIT_CONN")) return 5;
+        if (u.startsWith("LOBBY")) return 6;
+        if (u.startsWith("ROOMLIST")) return u.substring(8).trim();
+        if (u.startsWith("WAITING")) return u.substring(7).trim();
+        if (u.startsWith("START")) return u.split("\\s+");
+        if (u.startsWith("OK_MV")) return 7;
+        if (u.startsWith("OPP_MV")) return u.split("\\s+");
+        if (u.startsWith("ERR")) return u.substring(4);
+        if (u.startsWith("WIN_CHKM")) return 8;
+        if (u.startsWith("CHKM")) return 9;
+        if (u.startsWith("SM")) return 10;
+        if (u.startsWith("OPP_RES")) return 11;
+        if (u.startsWith("OPP_EXT")) return 12;
+        if (u.startsWith("RES")) return 13;
+        if (u.startsWith("OPP_TOUT")) return 14;
+        if (u.startsWith("TOUT")) return 15;
+        if (u.startsWith("DRW_ACD")) return 16;
+        if (u.startsWith("DRW_OFF")) return 17;
+        if (u.startsWith("DRW_DCD")) return 18;
+        return 0;
+    }
+}
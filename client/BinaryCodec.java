@@ -0,0 +1,364 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * BinaryCodec
+ *
+ * The optional BIN1 wire format. A client asks for it by appending
+ * {@link Protocol#CAP_BIN1} to HELLO; a server that supports it answers
+ * "PROTO BIN1" as a text line and switches its output to BIN1 right after
+ * it. The client echoes "PROTO BIN1" and switches too. Servers that ignore
+ * the capability simply keep talking text.
+ *
+ * Every frame is a varint length followed by that many bytes: a one-byte
+ * opcode and its body. If the opcode has {@link #ACK_FLAG} set, the next
+ * byte is an ACK code carried along for free, so an ACK and the message
+ * that follows it cost one frame. Moves are packed into two bytes:
+ * from square (6 bits), to square (6 bits), promotion (3 bits), with
+ * squares numbered row * 8 + col from a8.
+ *
+ * The codec translates between frames and the text lines of the normal
+ * protocol, so everything above the transport is unaware of it. Lines
+ * without a compact encoding travel as {@link #OP_LINE} frames. Both
+ * directions use the same opcodes; the stand-in test server shares this
+ * class.
+ */
+public final class BinaryCodec {
+    /** Opcode bit: an ACK code byte follows the opcode. */
+    public static final int ACK_FLAG = 0x80;
+
+    public static final int OP_LINE = 0x01;    // UTF-8 text line
+    public static final int OP_PING = 0x02;
+    public static final int OP_PONG = 0x03;
+    public static final int OP_ACK = 0x04;     // Code byte, nothing to piggy-back on
+    public static final int OP_MV = 0x05;      // Packed move; the text form has no space, "MVe2e4"
+    public static final int OP_OPP_MV = 0x06;  // Packed move
+    public static final int OP_OK_MV = 0x07;
+    public static final int OP_TIME = 0x08;    // Varint seconds
+    public static final int OP_CHK = 0x09;
+    public static final int OP_HISTORY = 0x0A; // Packed moves
+
+    /** Largest frame accepted, matching the text line limit. */
+    public static final int MAX_FRAME = LineFramer.MAX_LINE;
+
+    private static final String PROMOS = "\0qrbn";
+
+    private BinaryCodec() {}
+
+    /**
+     * Packs a move in coordinate notation ("e2e4", "a7a8q").
+     * @return The packed move, or -1 if the text is not a move.
+     */
+    public static int packMove(String s, int off, int end) {
+        int len = end - off;
+        if (len != 4 && len != 5) return -1;
+        int from = square(s.charAt(off), s.charAt(off + 1));
+        int to = square(s.charAt(off + 2), s.charAt(off + 3));
+        int promo = len == 5 ? PROMOS.indexOf(s.charAt(off + 4)) : 0;
+        if (from < 0 || to < 0 || promo <= 0 && len == 5) return -1;
+        return from | (to << 6) | (promo << 12);
+    }
+
+    /**
+     * Appends the coordinate notation of a packed move.
+     */
+    public static void appendMove(StringBuilder sb, int packed) {
+        int from = packed & 63, to = (packed >>> 6) & 63, promo = (packed >>> 12) & 7;
+        sb.append((char) ('a' + (from & 7))).append((char) ('8' - (from >>> 3)))
+          .append((char) ('a' + (to & 7))).append((char) ('8' - (to >>> 3)));
+        if (promo > 0 && promo < PROMOS.length()) sb.append(PROMOS.charAt(promo));
+    }
+
+    private static int square(char file, char rank) {
+        if (file < 'a' || file > 'h' || rank < '1' || rank > '8') return -1;
+        return ('8' - rank) * 8 + (file - 'a');
+    }
+
+    private static boolean isAck(String line) {
+        return line.length() == 2 && isDigit(line.charAt(0)) && isDigit(line.charAt(1));
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    /**
+     * Turns outbound text lines into frames in a reusable byte array.
+     * An ACK line is held back and attached to the next frame of the same
+     * batch; {@link #finish()} sends a held ACK on its own. Not thread-safe.
+     */
+    public static final class Encoder {
+        private byte[] buf = new byte[256];
+        private int size = 0;
+        private int pendingAck = -1;
+
+        /**
+         * Appends the frame for one line.
+         */
+        public void encode(String line) {
+            if (isAck(line)) {
+                if (pendingAck >= 0) frame(OP_ACK, null, 0, 0);
+                pendingAck = (line.charAt(0) - '0') * 10 + (line.charAt(1) - '0');
+                return;
+            }
+            switch (line) {
+                case "PING":  frame(OP_PING, null, 0, 0); return;
+                case "PNG":   frame(OP_PONG, null, 0, 0); return;
+                case "OK_MV": frame(OP_OK_MV, null, 0, 0); return;
+                case "CHK":   frame(OP_CHK, null, 0, 0); return;
+                default: break;
+            }
+            if (line.startsWith("MV") && encodeMove(OP_MV, line, 2)) return;
+            if (line.startsWith("OPP_MV ") && encodeMove(OP_OPP_MV, line, 7)) return;
+            if (line.startsWith("TIME ") && encodeTime(line)) return;
+            if (line.startsWith("HISTORY") && encodeHistory(line)) return;
+            byte[] text = line.getBytes(StandardCharsets.UTF_8);
+            frame(OP_LINE, text, 0, text.length);
+        }
+
+        /**
+         * Ends a batch: a held ACK goes out as a frame of its own.
+         */
+        public void finish() {
+            if (pendingAck >= 0) frame(OP_ACK, null, 0, 0);
+        }
+
+        public byte[] array() { return buf; }
+
+        public int size() { return size; }
+
+        /**
+         * Forgets the encoded bytes; a held ACK stays held.
+         */
+        public void reset() { size = 0; }
+
+        private boolean encodeMove(int op, String line, int off) {
+            int packed = packMove(line, off, line.length());
+            if (packed < 0) return false;
+            byte[] body = { (byte) packed, (byte) (packed >>> 8) };
+            frame(op, body, 0, 2);
+            return true;
+        }
+
+        private boolean encodeTime(String line) {
+            int seconds;
+            try {
+                seconds = Integer.parseInt(line.substring(5));
+            } catch (NumberFormatException e) {
+                return false;
+            }
+            if (seconds < 0 || !line.equals("TIME " + seconds)) return false; // Must round-trip exactly
+            byte[] body = new byte[5];
+            int n = putVarint(body, 0, seconds);
+            frame(OP_TIME, body, 0, n);
+            return true;
+        }
+
+        private boolean encodeHistory(String line) {
+            if (line.length() == 7) {
+                frame(OP_HISTORY, null, 0, 0);
+                return true;
+            }
+            if (line.charAt(7) != ' ' || line.endsWith(" ")) return false;
+            int count = 0;
+            byte[] body = new byte[(line.length() / 5 + 1) * 2];
+            int i = 8;
+            while (i <= line.length()) {
+                int end = line.indexOf(' ', i);
+                if (end < 0) end = line.length();
+                int packed = packMove(line, i, end);
+                if (packed < 0) return false;
+                body[count++] = (byte) packed;
+                body[count++] = (byte) (packed >>> 8);
+                i = end + 1;
+            }
+            frame(OP_HISTORY, body, 0, count);
+            return true;
+        }
+
+        private void frame(int op, byte[] body, int off, int len) {
+            int ack = pendingAck;
+            pendingAck = -1;
+            if (op == OP_ACK) {
+                // A bare ACK carries its code as the body
+                body = new byte[] { (byte) ack };
+                off = 0;
+                len = 1;
+                ack = -1;
+            }
+            int payload = 1 + (ack >= 0 ? 1 : 0) + len;
+            ensure(5 + payload);
+            size = putVarint(buf, size, payload);
+            buf[size++] = (byte) (ack >= 0 ? op | ACK_FLAG : op);
+            if (ack >= 0) buf[size++] = (byte) ack;
+            if (len > 0) System.arraycopy(body, off, buf, size, len);
+            size += len;
+        }
+
+        private void ensure(int extra) {
+            if (size + extra > buf.length) buf = Arrays.copyOf(buf, Math.max(buf.length * 2, size + extra));
+        }
+    }
+
+    /**
+     * Splits inbound bytes into frames and reports them to a handler as
+     * lines, pongs and ACKs. Not thread-safe; fed from one thread.
+     */
+    public static final class Decoder {
+        private final Transport.Handler handler;
+        private byte[] buf = new byte[256];
+        private int len = 0;
+        private boolean closed = false;
+        private final StringBuilder sb = new StringBuilder(64);
+
+        public Decoder(Transport.Handler handler) {
+            this.handler = handler;
+        }
+
+        /**
+         * Decodes the bytes of an array slice.
+         * @throws IOException On a malformed or oversized frame.
+         */
+        public void feed(byte[] src, int off, int n) throws IOException {
+            ensure(n);
+            System.arraycopy(src, off, buf, len, n);
+            len += n;
+            drain();
+        }
+
+        /**
+         * Decodes the remaining bytes of a buffer, leaving it fully consumed.
+         * @throws IOException On a malformed or oversized frame.
+         */
+        public void feed(ByteBuffer src) throws IOException {
+            int n = src.remaining();
+            ensure(n);
+            src.get(buf, len, n);
+            len += n;
+            drain();
+        }
+
+        /**
+         * Stops delivery; anything fed afterwards is dropped.
+         */
+        public void close() {
+            closed = true;
+            len = 0;
+        }
+
+        private void ensure(int n) {
+            // The carried-over part is less than one frame, which drain() bounds by MAX_FRAME
+            if (len + n > buf.length) buf = Arrays.copyOf(buf, Math.max(buf.length * 2, len + n));
+        }
+
+        private void drain() throws IOException {
+            int pos = 0;
+            while (!closed) {
+                // Varint length, at most three bytes for MAX_FRAME
+                int frameLen = 0, shift = 0, p = pos;
+                boolean complete = false;
+                while (p < len) {
+                    int b = buf[p++] & 0xFF;
+                    frameLen |= (b & 0x7F) << shift;
+                    if ((b & 0x80) == 0) { complete = true; break; }
+                    shift += 7;
+                    if (shift > 21) throw new IOException("Malformed frame length");
+                }
+                if (!complete) break;
+                if (frameLen < 1 || frameLen > MAX_FRAME) throw new IOException("Bad frame length " + frameLen);
+                if (len - p < frameLen) break;
+                dispatch(p, frameLen);
+                pos = p + frameLen;
+            }
+            if (closed) return;
+            if (pos > 0) {
+                System.arraycopy(buf, pos, buf, 0, len - pos);
+                len -= pos;
+            }
+        }
+
+        private void dispatch(int p, int frameLen) throws IOException {
+            int end = p + frameLen;
+            int op = buf[p++] & 0xFF;
+            try {
+                if ((op & ACK_FLAG) != 0) {
+                    if (p >= end) throw new IOException("Missing piggy-backed ACK");
+                    ack(buf[p++] & 0xFF);
+                    op &= ~ACK_FLAG;
+                }
+                switch (op) {
+                    case OP_LINE:
+                        handler.onLine(new String(buf, p, end - p, StandardCharsets.UTF_8));
+                        break;
+                    case OP_PING:
+                        handler.onLine(Protocol.CMD_PING);
+                        break;
+                    case OP_PONG:
+                        handler.onPong();
+                        break;
+                    case OP_ACK:
+                        if (p < end) ack(buf[p] & 0xFF);
+                        break;
+                    case OP_OK_MV:
+                        handler.onLine(Protocol.RESP_OK_MV);
+                        break;
+                    case OP_CHK:
+                        handler.onLine(Protocol.RESP_CHK);
+                        break;
+                    case OP_MV:
+                    case OP_OPP_MV:
+                        if (end - p < 2) throw new IOException("Short move frame");
+                        sb.setLength(0);
+                        if (op == OP_MV) sb.append(Protocol.CMD_MV);
+                        else sb.append(Protocol.RESP_OPP_MV).append(' ');
+                        appendMove(sb, (buf[p] & 0xFF) | (buf[p + 1] & 0xFF) << 8);
+                        handler.onLine(sb.toString());
+                        break;
+                    case OP_TIME: {
+                        int v = 0, shift = 0;
+                        while (p < end) {
+                            int b = buf[p++] & 0xFF;
+                            v |= (b & 0x7F) << shift;
+                            if ((b & 0x80) == 0) break;
+                            shift += 7;
+                        }
+                        handler.onLine(Protocol.RESP_TIME + " " + v);
+                        break;
+                    }
+                    case OP_HISTORY:
+                        sb.setLength(0);
+                        sb.append(Protocol.RESP_HISTORY);
+                        for (; p + 1 < end; p += 2) {
+                            sb.append(' ');
+                            appendMove(sb, (buf[p] & 0xFF) | (buf[p + 1] & 0xFF) << 8);
+                        }
+                        handler.onLine(sb.toString());
+                        break;
+                    default:
+                        throw new IOException("Unknown opcode " + op);
+                }
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        }
+
+        /**
+         * Passes on an ACK code; text ACKs have two digits, so a larger code is corrupt.
+         */
+        private void ack(int code) throws IOException {
+            if (code > 99) throw new IOException("Bad ACK code " + code);
+            handler.onAck(code);
+        }
+    }
+
+    private static int putVarint(byte[] dst, int pos, int value) {
+        while ((value & ~0x7F) != 0) {
+            dst[pos++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        dst[pos++] = (byte) value;
+        return pos;
+    }
+}
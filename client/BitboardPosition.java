@@ -0,0 +1,424 @@
+import java.util.Arrays;
+
+/**
+ * BitboardPosition
+ *
+ * Bitboard representation of a chess position: one 64-bit mask per piece
+ * type and color, plus per-color and total occupancy masks. A mailbox array
+ * mirrors the masks so "what stands on this square" stays a single lookup.
+ *
+ * Squares use the same layout as {@link BoardModel#board}: square = row * 8 + col,
+ * row 0 being Black's back rank. Pieces are indexed color * 6 + type.
+ *
+ * Besides placement the position carries the side to move, castling rights
+ * and the en-passant target, which is everything move generation needs, and
+ * a {@link Zobrist} hash of all of it that every update keeps current.
+ *
+ * After every move the position also caches, for the side to move, the
+ * pieces giving check and the own pieces pinned to the king, so check tests
+ * and legality filtering read two masks instead of recomputing attacks.
+ */
+public class BitboardPosition {
+    public static final int WHITE = 0, BLACK = 1;
+    public static final int PAWN = 0, KNIGHT = 1, BISHOP = 2, ROOK = 3, QUEEN = 4, KING = 5;
+    public static final int NO_PIECE = -1;
+
+    // Castling right bits
+    public static final int CASTLE_WK = 1, CASTLE_WQ = 2, CASTLE_BK = 4, CASTLE_BQ = 8;
+
+    /** Rights that survive a move touching each square (king or rook home squares clear them). */
+    private static final int[] CASTLE_MASK = new int[64];
+
+    static {
+        for (int sq = 0; sq < 64; sq++) CASTLE_MASK[sq] = 0xF;
+        CASTLE_MASK[60] &= ~(CASTLE_WK | CASTLE_WQ);
+        CASTLE_MASK[63] &= ~CASTLE_WK;
+        CASTLE_MASK[56] &= ~CASTLE_WQ;
+        CASTLE_MASK[4]  &= ~(CASTLE_BK | CASTLE_BQ);
+        CASTLE_MASK[7]  &= ~CASTLE_BK;
+        CASTLE_MASK[0]  &= ~CASTLE_BQ;
+    }
+
+    /** Piece characters by piece index, matching the char[][] encoding of BoardModel. */
+    private static final char[] PIECE_CHARS = { 'P','N','B','R','Q','K','p','n','b','r','q','k' };
+
+    final long[] pieces = new long[12];
+    final long[] occupancy = new long[2];
+    long all;
+    final int[] mailbox = new int[64];
+    int sideToMove = WHITE;
+    int castling;
+    int epSquare = -1;
+    long hash;
+
+    // Check state of the side to move, refreshed after every move
+    long checkers;
+    long pinned;
+    private boolean checkInfoStale;
+
+    // Undo stack for makeMove/unmakeMove, one entry per ply made
+    private static final int INITIAL_UNDO_CAPACITY = 256;
+    private int[] undoCaptured = new int[INITIAL_UNDO_CAPACITY];
+    private int[] undoCastling = new int[INITIAL_UNDO_CAPACITY];
+    private int[] undoEp = new int[INITIAL_UNDO_CAPACITY];
+    private int[] undoSide = new int[INITIAL_UNDO_CAPACITY]; // Side to move before; the mover may differ
+    private long[] undoHash = new long[INITIAL_UNDO_CAPACITY];
+    private long[] undoCheckers = new long[INITIAL_UNDO_CAPACITY];
+    private long[] undoPinned = new long[INITIAL_UNDO_CAPACITY];
+    private int undoTop = 0;
+
+    public BitboardPosition() {
+        clear();
+    }
+
+    /** Removes every piece from the board and resets the game state. */
+    public void clear() {
+        for (int i = 0; i < 12; i++) pieces[i] = 0L;
+        occupancy[WHITE] = occupancy[BLACK] = all = 0L;
+        for (int sq = 0; sq < 64; sq++) mailbox[sq] = NO_PIECE;
+        sideToMove = WHITE;
+        castling = 0;
+        epSquare = -1;
+        undoTop = 0;
+        hash = 0L;
+        checkers = pinned = 0L;
+        checkInfoStale = false;
+    }
+
+    /**
+     * Rebuilds the masks from an 8x8 character board. White is to move, there is no
+     * en-passant target, and castling rights are granted wherever king and rook still
+     * stand on their home squares.
+     */
+    public void load(char[][] b) {
+        clear();
+        for (int r = 0; r < 8; r++) {
+            for (int c = 0; c < 8; c++) {
+                int idx = pieceIndex(b[r][c]);
+                if (idx != NO_PIECE) add(r * 8 + c, idx);
+            }
+        }
+        if (mailbox[60] == 5) {
+            if (mailbox[63] == 3) castling |= CASTLE_WK;
+            if (mailbox[56] == 3) castling |= CASTLE_WQ;
+        }
+        if (mailbox[4] == 11) {
+            if (mailbox[7] == 9) castling |= CASTLE_BK;
+            if (mailbox[0] == 9) castling |= CASTLE_BQ;
+        }
+        hash = Zobrist.hash(this);
+        updateCheckInfo();
+    }
+
+    /**
+     * Loads a position from Forsyth-Edwards Notation. Move counters are ignored.
+     * @throws IllegalArgumentException If the placement field is malformed.
+     */
+    public void setFen(String fen) {
+        String[] f = fen.trim().split("\\s+");
+        clear();
+        int r = 0, c = 0;
+        for (int i = 0; i < f[0].length(); i++) {
+            char ch = f[0].charAt(i);
+            if (ch == '/') { r++; c = 0; }
+            else if (ch >= '1' && ch <= '8') c += ch - '0';
+            else {
+                int idx = pieceIndex(ch);
+                if (idx == NO_PIECE || r > 7 || c > 7) throw new IllegalArgumentException("Bad FEN: " + fen);
+                add(r * 8 + c++, idx);
+            }
+        }
+        sideToMove = (f.length > 1 && f[1].equals("b")) ? BLACK : WHITE;
+        if (f.length > 2) {
+            if (f[2].indexOf('K') >= 0) castling |= CASTLE_WK;
+            if (f[2].indexOf('Q') >= 0) castling |= CASTLE_WQ;
+            if (f[2].indexOf('k') >= 0) castling |= CASTLE_BK;
+            if (f[2].indexOf('q') >= 0) castling |= CASTLE_BQ;
+        }
+        if (f.length > 3 && f[3].length() == 2) {
+            epSquare = (8 - (f[3].charAt(1) - '0')) * 8 + (f[3].charAt(0) - 'a');
+        }
+        hash = Zobrist.hash(this);
+        updateCheckInfo();
+    }
+
+    /** Copies the state of another position into this one. The undo history is not copied. */
+    public void copyFrom(BitboardPosition o) {
+        System.arraycopy(o.pieces, 0, pieces, 0, 12);
+        occupancy[WHITE] = o.occupancy[WHITE];
+        occupancy[BLACK] = o.occupancy[BLACK];
+        all = o.all;
+        System.arraycopy(o.mailbox, 0, mailbox, 0, 64);
+        sideToMove = o.sideToMove;
+        castling = o.castling;
+        epSquare = o.epSquare;
+        hash = o.hash;
+        checkers = o.checkers;
+        pinned = o.pinned;
+        checkInfoStale = o.checkInfoStale;
+        undoTop = 0;
+    }
+
+    public int sideToMove() { return sideToMove; }
+
+    public int castlingRights() { return castling; }
+
+    /** En-passant target square, or -1 if none. */
+    public int epSquare() { return epSquare; }
+
+    /** Zobrist hash of the position, including side to move, castling and en passant. */
+    public long hash() { return hash; }
+
+    /** Pieces giving check to the side to move. */
+    public long checkers() {
+        if (checkInfoStale) updateCheckInfo();
+        return checkers;
+    }
+
+    /** Pieces of the side to move that are pinned to their king. */
+    public long pinned() {
+        if (checkInfoStale) updateCheckInfo();
+        return pinned;
+    }
+
+    /**
+     * Recomputes checkers and pinned pieces for the side to move. A piece is
+     * pinned when it is the only piece between its king and an enemy slider
+     * on the same line.
+     */
+    private void updateCheckInfo() {
+        checkInfoStale = false;
+        int us = sideToMove;
+        int king = kingSquare(us);
+        if (king < 0) {
+            checkers = pinned = 0L;
+            return;
+        }
+        int them = (1 - us) * 6;
+        long queens = pieces[them + QUEEN];
+        checkers = attackersTo(king, 1 - us);
+        pinned = 0L;
+        long snipers = (Bitboards.rookAttacks(king, 0L) & (pieces[them + ROOK] | queens))
+                     | (Bitboards.bishopAttacks(king, 0L) & (pieces[them + BISHOP] | queens));
+        while (snipers != 0) {
+            int s = Long.numberOfTrailingZeros(snipers);
+            snipers &= snipers - 1;
+            long blockers = Bitboards.between(king, s) & all;
+            if (blockers != 0 && (blockers & (blockers - 1)) == 0) pinned |= blockers & occupancy[us];
+        }
+    }
+
+    /** Sets the en-passant target square (-1 for none). */
+    public void setEpSquare(int sq) {
+        hash ^= Zobrist.epKey(epSquare) ^ Zobrist.epKey(sq);
+        epSquare = sq;
+    }
+
+    /**
+     * Replaces castling rights and side to move, keeping the hash current.
+     */
+    private void setState(int rights, int side, int ep) {
+        hash ^= Zobrist.CASTLING[castling] ^ Zobrist.CASTLING[rights];
+        if (side != sideToMove) hash ^= Zobrist.SIDE;
+        hash ^= Zobrist.epKey(epSquare) ^ Zobrist.epKey(ep);
+        castling = rights;
+        sideToMove = side;
+        epSquare = ep;
+    }
+
+    /**
+     * Updates side to move, castling rights and en-passant target after the pieces
+     * of a move were already placed with {@link #put}.
+     */
+    public void finishMove(int from, int to, int epSq) {
+        int moved = mailbox[to];
+        int side = (moved == NO_PIECE) ? 1 - sideToMove : 1 - moved / 6;
+        setState(castling & CASTLE_MASK[from] & CASTLE_MASK[to], side, epSq);
+        updateCheckInfo();
+    }
+
+    /**
+     * Plays a move in place and records what is needed to take it back with
+     * {@link #unmakeMove}. The mover is the piece on the from-square, so moves
+     * of either color can be made regardless of the side to move.
+     */
+    public void makeMove(int move) {
+        int from = Move.from(move), to = Move.to(move);
+        long hashBefore = hash;
+        if (checkInfoStale) updateCheckInfo();
+        int piece = take(from);
+        int us = piece / 6;
+        int captured = NO_PIECE;
+        if ((move & Move.FLAG_EN_PASSANT) != 0) {
+            take(us == WHITE ? to + 8 : to - 8);
+        } else {
+            captured = take(to);
+        }
+        if ((move & Move.FLAG_CASTLE) != 0) {
+            if (to > from) add(from + 1, take(from + 3));
+            else add(from - 1, take(from - 4));
+        }
+        int promo = Move.promo(move);
+        add(to, (promo != 0) ? us * 6 + promo : piece);
+
+        pushUndo(captured, hashBefore);
+        setState(castling & CASTLE_MASK[from] & CASTLE_MASK[to], 1 - us,
+                 ((move & Move.FLAG_DOUBLE_PUSH) != 0) ? (from + to) >>> 1 : -1);
+        updateCheckInfo();
+    }
+
+    /**
+     * Takes back the last move made with {@link #makeMove}.
+     */
+    public void unmakeMove(int move) {
+        int from = Move.from(move), to = Move.to(move);
+        undoTop--;
+        int piece = take(to);
+        int us = piece / 6;
+        if (Move.promo(move) != 0) piece = us * 6 + PAWN;
+        add(from, piece);
+        if ((move & Move.FLAG_CASTLE) != 0) {
+            if (to > from) add(from + 3, take(from + 1));
+            else add(from - 4, take(from - 1));
+        }
+        if ((move & Move.FLAG_EN_PASSANT) != 0) {
+            add(us == WHITE ? to + 8 : to - 8, (1 - us) * 6 + PAWN);
+        } else if (undoCaptured[undoTop] != NO_PIECE) {
+            add(to, undoCaptured[undoTop]);
+        }
+        castling = undoCastling[undoTop];
+        epSquare = undoEp[undoTop];
+        sideToMove = undoSide[undoTop];
+        hash = undoHash[undoTop];
+        checkers = undoCheckers[undoTop];
+        pinned = undoPinned[undoTop];
+    }
+
+    private void pushUndo(int captured, long hashBefore) {
+        if (undoTop == undoCaptured.length) {
+            int cap = undoTop * 2;
+            undoCaptured = Arrays.copyOf(undoCaptured, cap);
+            undoCastling = Arrays.copyOf(undoCastling, cap);
+            undoEp = Arrays.copyOf(undoEp, cap);
+            undoSide = Arrays.copyOf(undoSide, cap);
+            undoHash = Arrays.copyOf(undoHash, cap);
+            undoCheckers = Arrays.copyOf(undoCheckers, cap);
+            undoPinned = Arrays.copyOf(undoPinned, cap);
+        }
+        undoCaptured[undoTop] = captured;
+        undoCastling[undoTop] = castling;
+        undoEp[undoTop] = epSquare;
+        undoSide[undoTop] = sideToMove;
+        undoHash[undoTop] = hashBefore;
+        undoCheckers[undoTop] = checkers;
+        undoPinned[undoTop] = pinned;
+        undoTop++;
+    }
+
+    public static int pieceIndex(char p) {
+        switch (p) {
+            case 'P': return 0;  case 'N': return 1;  case 'B': return 2;
+            case 'R': return 3;  case 'Q': return 4;  case 'K': return 5;
+            case 'p': return 6;  case 'n': return 7;  case 'b': return 8;
+            case 'r': return 9;  case 'q': return 10; case 'k': return 11;
+            default: return NO_PIECE;
+        }
+    }
+
+    public static char pieceChar(int idx) {
+        return (idx == NO_PIECE) ? '.' : PIECE_CHARS[idx];
+    }
+
+    public static int colorOf(int idx) { return idx / 6; }
+
+    public static int typeOf(int idx) { return idx % 6; }
+
+    /** Places a piece on an empty square. */
+    void add(int sq, int idx) {
+        long bb = 1L << sq;
+        pieces[idx] |= bb;
+        occupancy[idx / 6] |= bb;
+        all |= bb;
+        mailbox[sq] = idx;
+        hash ^= Zobrist.PIECE[idx][sq];
+    }
+
+    /** Clears an occupied square and returns the piece that stood there. */
+    int take(int sq) {
+        int idx = mailbox[sq];
+        if (idx == NO_PIECE) return NO_PIECE;
+        long bb = ~(1L << sq);
+        pieces[idx] &= bb;
+        occupancy[idx / 6] &= bb;
+        all &= bb;
+        mailbox[sq] = NO_PIECE;
+        hash ^= Zobrist.PIECE[idx][sq];
+        return idx;
+    }
+
+    /**
+     * Sets a square to the given piece character ('.' empties it).
+     */
+    public void put(int sq, char p) {
+        take(sq);
+        int idx = pieceIndex(p);
+        if (idx != NO_PIECE) add(sq, idx);
+        checkInfoStale = true;
+    }
+
+    public char pieceAt(int sq) { return pieceChar(mailbox[sq]); }
+
+    public int pieceIndexAt(int sq) { return mailbox[sq]; }
+
+    public long pieces(int color, int type) { return pieces[color * 6 + type]; }
+
+    public long occupancy(int color) { return occupancy[color]; }
+
+    public long occupied() { return all; }
+
+    /** Square of the given side's king, or -1 if it is not on the board. */
+    public int kingSquare(int color) {
+        long k = pieces[color * 6 + KING];
+        return (k == 0) ? -1 : Long.numberOfTrailingZeros(k);
+    }
+
+    /**
+     * All pieces of the given color attacking a square, with the current occupancy.
+     */
+    public long attackersTo(int sq, int byColor) {
+        return attackersTo(sq, byColor, all);
+    }
+
+    /**
+     * All pieces of the given color attacking a square, with sliding attacks
+     * computed against the supplied occupancy mask.
+     */
+    public long attackersTo(int sq, int byColor, long occupied) {
+        int base = byColor * 6;
+        long queens = pieces[base + QUEEN];
+        long att = Bitboards.pawnAttacksFrom(sq, 1 - byColor) & pieces[base + PAWN];
+        att |= Bitboards.knightAttacksFrom(sq) & pieces[base + KNIGHT];
+        att |= Bitboards.kingAttacksFrom(sq) & pieces[base + KING];
+        att |= Bitboards.bishopAttacks(sq, occupied) & (pieces[base + BISHOP] | queens);
+        att |= Bitboards.rookAttacks(sq, occupied) & (pieces[base + ROOK] | queens);
+        return att;
+    }
+
+    public boolean isSquareAttacked(int sq, int byColor) {
+        return attackersTo(sq, byColor) != 0;
+    }
+
+    /** True if the given side's king is attacked. */
+    public boolean inCheck(int color) {
+        if (color == sideToMove) return checkers() != 0;
+        int k = kingSquare(color);
+        return k >= 0 && isSquareAttacked(k, 1 - color);
+    }
+
+    /** True if no piece stands strictly between two aligned squares. */
+    public boolean pathClear(int from, int to) {
+        if (from == to) return true;
+        if (!Bitboards.aligned(from, to)) return false;
+        return (Bitboards.between(from, to) & all) == 0;
+    }
+}
@@ -0,0 +1,151 @@
+/**
+ * Bitboards
+ *
+ * Static helpers and precomputed tables for 64-bit board masks.
+ *
+ * Square indexing follows {@link BoardModel}: square = row * 8 + col, where
+ * row 0 is Black's back rank (rank 8) and col 0 is the a-file. Bit n of a
+ * mask is set when square n is part of the set.
+ */
+public final class Bitboards {
+    private Bitboards() {}
+
+    public static final long FILE_A = 0x0101010101010101L;
+    public static final long FILE_B = FILE_A << 1;
+    public static final long FILE_G = FILE_A << 6;
+    public static final long FILE_H = FILE_A << 7;
+
+    // Ray directions. The first four increase the square index, the last four decrease it,
+    // and (dir + 4) & 7 is always the opposite direction.
+    public static final int SOUTH = 0, EAST = 1, SOUTH_EAST = 2, SOUTH_WEST = 3;
+    public static final int NORTH = 4, WEST = 5, NORTH_WEST = 6, NORTH_EAST = 7;
+    private static final int[] DIR_DR = { 1, 0, 1, 1, -1, 0, -1, -1 };
+    private static final int[] DIR_DC = { 0, 1, 1, -1, 0, -1, -1, 1 };
+
+    /** RAYS[dir][sq]: every square reachable from sq in the given direction on an empty board. */
+    private static final long[][] RAYS = new long[8][64];
+    /** BETWEEN[a][b]: squares strictly between two aligned squares, 0 otherwise. */
+    private static final long[][] BETWEEN = new long[64][64];
+    /** LINE[a][b]: the full rank, file or diagonal through two aligned squares, 0 otherwise. */
+    private static final long[][] LINE = new long[64][64];
+
+    /** KNIGHT_ATTACKS[sq], KING_ATTACKS[sq]: squares a knight or king on sq attacks. */
+    private static final long[] KNIGHT_ATTACKS = new long[64];
+    private static final long[] KING_ATTACKS = new long[64];
+    /** PAWN_ATTACKS[color][sq]: squares a pawn of that color on sq attacks. */
+    private static final long[][] PAWN_ATTACKS = new long[2][64];
+
+    static {
+        for (int sq = 0; sq < 64; sq++) {
+            for (int dir = 0; dir < 8; dir++) {
+                long ray = 0L;
+                int r = sq / 8 + DIR_DR[dir], c = sq % 8 + DIR_DC[dir];
+                while (r >= 0 && r < 8 && c >= 0 && c < 8) {
+                    ray |= 1L << (r * 8 + c);
+                    r += DIR_DR[dir]; c += DIR_DC[dir];
+                }
+                RAYS[dir][sq] = ray;
+            }
+        }
+        for (int a = 0; a < 64; a++) {
+            for (int dir = 0; dir < 8; dir++) {
+                int opposite = (dir + 4) & 7;
+                long ray = RAYS[dir][a];
+                while (ray != 0) {
+                    int b = Long.numberOfTrailingZeros(ray);
+                    ray &= ray - 1;
+                    BETWEEN[a][b] = RAYS[dir][a] & RAYS[opposite][b];
+                    LINE[a][b] = RAYS[dir][a] | RAYS[opposite][a] | (1L << a);
+                }
+            }
+        }
+        for (int sq = 0; sq < 64; sq++) {
+            long b = 1L << sq;
+            KNIGHT_ATTACKS[sq] = knightAttacks(b);
+            KING_ATTACKS[sq] = kingAttacks(b);
+            PAWN_ATTACKS[0][sq] = pawnAttacks(b, 0);
+            PAWN_ATTACKS[1][sq] = pawnAttacks(b, 1);
+        }
+    }
+
+    public static int square(int r, int c) { return r * 8 + c; }
+
+    public static int row(int sq) { return sq >>> 3; }
+
+    public static int col(int sq) { return sq & 7; }
+
+    public static long bit(int sq) { return 1L << sq; }
+
+    public static long between(int a, int b) { return BETWEEN[a][b]; }
+
+    public static long line(int a, int b) { return LINE[a][b]; }
+
+    /** True if both squares share a rank, file or diagonal. */
+    public static boolean aligned(int a, int b) { return LINE[a][b] != 0; }
+
+    /**
+     * Squares attacked along one ray, stopping at (and including) the first occupied square.
+     */
+    public static long rayAttacks(int dir, int sq, long occupied) {
+        long ray = RAYS[dir][sq];
+        long blockers = ray & occupied;
+        if (blockers != 0) {
+            int first = (dir < 4) ? Long.numberOfTrailingZeros(blockers)
+                                  : 63 - Long.numberOfLeadingZeros(blockers);
+            ray ^= RAYS[dir][first];
+        }
+        return ray;
+    }
+
+    public static long rookAttacks(int sq, long occupied) {
+        return rayAttacks(NORTH, sq, occupied) | rayAttacks(SOUTH, sq, occupied)
+             | rayAttacks(EAST, sq, occupied) | rayAttacks(WEST, sq, occupied);
+    }
+
+    public static long bishopAttacks(int sq, long occupied) {
+        return rayAttacks(NORTH_EAST, sq, occupied) | rayAttacks(NORTH_WEST, sq, occupied)
+             | rayAttacks(SOUTH_EAST, sq, occupied) | rayAttacks(SOUTH_WEST, sq, occupied);
+    }
+
+    public static long queenAttacks(int sq, long occupied) {
+        return rookAttacks(sq, occupied) | bishopAttacks(sq, occupied);
+    }
+
+    /** Knight attacks from a single square. */
+    public static long knightAttacksFrom(int sq) { return KNIGHT_ATTACKS[sq]; }
+
+    /** King attacks from a single square. */
+    public static long kingAttacksFrom(int sq) { return KING_ATTACKS[sq]; }
+
+    /**
+     * Pawn attacks from a single square. Because pawn captures are symmetric,
+     * pawnAttacksFrom(sq, 1 - color) is also the set of squares from which a
+     * pawn of the given color attacks sq.
+     */
+    public static long pawnAttacksFrom(int sq, int color) { return PAWN_ATTACKS[color][sq]; }
+
+    /** Knight attacks from every square in the set. */
+    public static long knightAttacks(long b) {
+        long l1 = (b >>> 1) & ~FILE_H;
+        long l2 = (b >>> 2) & ~(FILE_G | FILE_H);
+        long r1 = (b << 1) & ~FILE_A;
+        long r2 = (b << 2) & ~(FILE_A | FILE_B);
+        long h1 = l1 | r1;
+        long h2 = l2 | r2;
+        return (h1 << 16) | (h1 >>> 16) | (h2 << 8) | (h2 >>> 8);
+    }
+
+    /** King attacks from every square in the set. */
+    public static long kingAttacks(long b) {
+        long row = b | ((b << 1) & ~FILE_A) | ((b >>> 1) & ~FILE_H);
+        return (row | (row << 8) | (row >>> 8)) & ~b;
+    }
+
+    /**
+     * Squares attacked by pawns of the given color. White pawns move towards row 0.
+     */
+    public static long pawnAttacks(long b, int color) {
+        if (color == 0) return ((b >>> 9) & ~FILE_H) | ((b >>> 7) & ~FILE_A);
+        return ((b << 7) & ~FILE_H) | ((b << 9) & ~FILE_A);
+    }
+}
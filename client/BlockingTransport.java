@@ -0,0 +1,200 @@
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * BlockingTransport
+ *
+ * Classic socket transport: a blocking {@link Socket} with one thread reading
+ * lines and one thread draining the outbound queue. Simple and low-latency,
+ * but costs two threads per connection; cheap ones when
+ * {@link ThreadSupport} runs on virtual threads.
+ *
+ * The writer drains everything queued into one buffer and flushes once per
+ * batch, so an ACK and the command that follows it usually share a segment.
+ * chess.net.writeBatch caps the lines per batch and chess.net.writeLingerMs
+ * is how long the writer waits for more lines before flushing.
+ *
+ * After {@link #enableBinary()} the same batches are encoded as BIN1 frames.
+ */
+public class BlockingTransport implements Transport {
+    private static final int MAX_BATCH = Math.max(1, Integer.getInteger("chess.net.writeBatch", 64));
+    private static final long LINGER_NANOS = TimeUnit.MILLISECONDS.toNanos(Long.getLong("chess.net.writeLingerMs", 1));
+
+    private Socket socket;
+    private InputStream in;
+    private OutputStream out;
+    private Handler handler;
+    private volatile LineFramer framer;
+
+    private Thread readerThread;
+    private Thread writerThread;
+    private final BlockingQueue<String> writeQueue = new LinkedBlockingQueue<>();
+
+    /** Queue marker: lines after it are encoded as BIN1 frames. Compared by identity. */
+    private static final String SWITCH_TO_BINARY = new String("PROTO BIN1 switch");
+    private BinaryCodec.Encoder encoder; // Writer thread only, null while in text mode
+
+    private ConnectionMetrics metrics = new ConnectionMetrics();
+
+    private volatile boolean closed = false;
+    private final AtomicBoolean closeReported = new AtomicBoolean(false);
+
+    @Override
+    public void open(String host, int port, int timeoutMillis, Handler handler) throws IOException {
+        this.handler = handler;
+        Socket s = new Socket();
+        synchronized (this) {
+            // Published before connecting, so that close() can abort the connect
+            if (closed) throw new IOException("Transport closed");
+            socket = s;
+        }
+        try {
+            s.connect(new InetSocketAddress(host, port), timeoutMillis);
+        } catch (IOException e) {
+            try { s.close(); } catch (IOException ignored) {}
+            writeQueue.clear();
+            throw e;
+        }
+        socket.setSoTimeout(0);
+        socket.setTcpNoDelay(true); // Batching happens in writeLoop, Nagle would only add delay
+
+        in = socket.getInputStream();
+        out = new BufferedOutputStream(socket.getOutputStream(), 8192);
+
+        readerThread = ThreadSupport.newThread("NetworkReader", this::readLoop);
+        writerThread = ThreadSupport.newThread("NetworkWriter", this::writeLoop);
+        readerThread.start();
+        writerThread.start();
+    }
+
+    /**
+     * Reads and frames lines until the stream ends or the socket is closed.
+     */
+    private void readLoop() {
+        IOException cause = null;
+        LineFramer framer = new LineFramer(handler);
+        this.framer = framer;
+        byte[] chunk = new byte[8192];
+        try {
+            int n;
+            while (!closed && (n = in.read(chunk)) >= 0) {
+                metrics.bytesIn(n);
+                framer.feed(chunk, 0, n);
+            }
+        } catch (IOException e) {
+            if (!closed) cause = e;
+        } finally {
+            framer.close();
+            close();
+            if (closeReported.compareAndSet(false, true)) handler.onClosed(cause);
+        }
+    }
+
+    /**
+     * Processes the outbound message queue and writes lines to the socket,
+     * one flush per batch.
+     */
+    private void writeLoop() {
+        List<String> batch = new ArrayList<>(MAX_BATCH);
+        try {
+            while (!closed) {
+                batch.add(writeQueue.take());
+                collectBatch(batch);
+                for (int i = 0; i < batch.size(); i++) {
+                    String line = batch.get(i);
+                    if (line == SWITCH_TO_BINARY) {
+                        encoder = new BinaryCodec.Encoder();
+                    } else if (encoder != null) {
+                        encoder.encode(line);
+                    } else {
+                        byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+                        out.write(bytes);
+                        out.write('\n');
+                        metrics.bytesOut(bytes.length + 1);
+                    }
+                }
+                if (encoder != null) {
+                    encoder.finish();
+                    out.write(encoder.array(), 0, encoder.size());
+                    metrics.bytesOut(encoder.size());
+                    encoder.reset();
+                }
+                out.flush();
+                batch.clear();
+            }
+        } catch (InterruptedException ignored) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            if (!closed) {
+                System.out.println("Writer thread error: " + e.getMessage());
+                close(); // The reader then sees the socket close and reports the end
+            }
+        }
+    }
+
+    /**
+     * Adds whatever else is queued to the batch, waiting up to the linger time for more.
+     */
+    private void collectBatch(List<String> batch) throws InterruptedException {
+        writeQueue.drainTo(batch, MAX_BATCH - batch.size());
+        if (LINGER_NANOS <= 0) return;
+        long deadline = System.nanoTime() + LINGER_NANOS;
+        while (batch.size() < MAX_BATCH) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) return;
+            String msg = writeQueue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (msg == null) return;
+            batch.add(msg);
+            writeQueue.drainTo(batch, MAX_BATCH - batch.size());
+        }
+    }
+
+    @Override
+    public void send(String line) {
+        if (closed) return;
+        writeQueue.offer(line);
+    }
+
+    @Override
+    public void setMetrics(ConnectionMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public int pendingWrites() {
+        return writeQueue.size();
+    }
+
+    @Override
+    public void enableBinary() {
+        framer.upgrade(new BinaryCodec.Decoder(handler));
+        writeQueue.offer(SWITCH_TO_BINARY);
+    }
+
+    @Override
+    public synchronized void close() {
+        if (closed) return;
+        closed = true;
+
+        if (readerThread != null) readerThread.interrupt();
+        if (writerThread != null) writerThread.interrupt();
+
+        // Socket first: closing the reader would wait for a readLine blocked on it
+        try { if (socket != null) socket.close(); } catch (Exception e) {}
+        try { if (in != null) in.close(); } catch (Exception e) {}
+        try { if (out != null) out.close(); } catch (Exception e) {}
+
+        writeQueue.clear();
+    }
+}
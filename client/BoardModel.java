@@ -1,5 +1,6 @@
 import java.awt.Point;
 import java.util.Arrays;
+import java.util.List;
 
 /**
  * BoardModel
@@ -12,12 +13,23 @@ import java.util.Arrays;
  * Uppercase = White: P N B R Q K
  * Lowercase = Black: p n b r q k
  * Empty square = '.'
+ *
+ * The char[][] board is the view the UI reads; every change made through this
+ * class is mirrored into a {@link BitboardPosition}, which answers attack,
+ * king and path queries without scanning the whole board.
  */
 public class BoardModel {
     public final char[][] board;
+    private final BitboardPosition position = new BitboardPosition();
+
+    // Zobrist hashes of the positions reached this game, for repetition detection
+    private long[] hashHistory = new long[256];
+    private int historySize = 0;
+    private int irreversibleAt = 0; // First history entry after the last capture, pawn move or castling
     public int epR = -1, epC = -1; // En-passant target coordinates, or -1 if none
     public char pendingPromo = 0;   // Stores promotion choice for the next move
     public Point lastFrom = null, lastTo = null; // Tracks the last move for UI highlighting
+    private int[] lookupMoves; // Scratch buffer of findLegalMove, allocated on first use
 
     public BoardModel() {
         board = new char[8][8];
@@ -38,6 +50,152 @@ public class BoardModel {
         epR = epC = -1;
         pendingPromo = 0;
         lastFrom = lastTo = null;
+        position.load(board);
+        historySize = 0;
+        recordPosition(true);
+    }
+
+    /**
+     * Makes this board a copy of another: squares, bitboards, repetition history,
+     * en passant and the last-move highlight. The undo entries of {@link #makeMove}
+     * are not copied.
+     */
+    public void copyFrom(BoardModel o) {
+        for (int r = 0; r < 8; r++) System.arraycopy(o.board[r], 0, board[r], 0, 8);
+        position.copyFrom(o.position);
+        if (hashHistory.length < o.historySize) hashHistory = new long[o.hashHistory.length];
+        System.arraycopy(o.hashHistory, 0, hashHistory, 0, o.historySize);
+        historySize = o.historySize;
+        irreversibleAt = o.irreversibleAt;
+        epR = o.epR;
+        epC = o.epC;
+        pendingPromo = o.pendingPromo;
+        lastFrom = o.lastFrom;
+        lastTo = o.lastTo;
+    }
+
+    /**
+     * Plays a sequence of moves in coordinate notation ("e2e4", "a7a8q"), such as a
+     * game history from the server, checking each against the legal moves of the
+     * side to move. A promotion without a piece letter promotes to a queen.
+     * @return The number of moves played; less than the list size if a move was
+     *         malformed or illegal, in which case the rest is skipped.
+     */
+    public int applyHistory(List<String> moves) {
+        for (int i = 0; i < moves.size(); i++) {
+            int m = findLegalMove(moves.get(i));
+            if (m == Move.NONE) return i;
+            int from = Move.from(m), to = Move.to(m);
+            applyOpponentMove(from / 8, from % 8, to / 8, to % 8, Move.promoChar(m));
+        }
+        return moves.size();
+    }
+
+    /**
+     * Finds a move in coordinate notation ("e2e4", "a7a8q") among the legal moves
+     * of the side to move. A promotion without a piece letter promotes to a queen.
+     * @return The packed move, or {@link Move#NONE} if it is malformed or illegal.
+     */
+    public int findLegalMove(String mv) {
+        int len = mv.length();
+        if (len != 4 && len != 5) return Move.NONE;
+        int r1 = '8' - mv.charAt(1), c1 = mv.charAt(0) - 'a';
+        int r2 = '8' - mv.charAt(3), c2 = mv.charAt(2) - 'a';
+        if (!inBounds(r1, c1) || !inBounds(r2, c2)) return Move.NONE;
+        int promo = len == 5 ? Move.promoType(mv.charAt(4)) : BitboardPosition.QUEEN;
+        if (promo == 0) return Move.NONE;
+        return findLegalMove(r1*8+c1, r2*8+c2, promo);
+    }
+
+    /**
+     * Finds a move among the legal moves of the side to move.
+     * @param promo Promotion piece type, used only if the move promotes.
+     * @return The packed move, or {@link Move#NONE} if it is not legal.
+     */
+    public int findLegalMove(int from, int to, int promo) {
+        if (lookupMoves == null) lookupMoves = new int[MoveGenerator.MAX_MOVES];
+        int n = generateLegalMoves(position.sideToMove(), lookupMoves);
+        for (int i = 0; i < n; i++) {
+            int m = lookupMoves[i];
+            if (Move.from(m) == from && Move.to(m) == to && (Move.promo(m) == 0 || Move.promo(m) == promo)) return m;
+        }
+        return Move.NONE;
+    }
+
+    /**
+     * Returns the bitboard mirror of {@link #board}.
+     */
+    public BitboardPosition getPosition() {
+        return position;
+    }
+
+    /**
+     * Rebuilds the bitboard mirror after {@link #board} was edited directly.
+     * See {@link BitboardPosition#load} for how the game state is inferred.
+     */
+    public void syncPosition() {
+        position.load(board);
+        position.setEpSquare(epSquare());
+    }
+
+    /**
+     * Returns the Zobrist hash of the current position (pieces, side to move,
+     * castling rights and en-passant target).
+     */
+    public long getPositionHash() {
+        return position.hash();
+    }
+
+    /**
+     * Counts how often the current position has occurred this game, including now.
+     * Only positions since the last irreversible move are compared.
+     */
+    public int repetitionCount() {
+        long h = position.hash();
+        int count = 1;
+        for (int i = historySize - 3; i >= irreversibleAt; i -= 2) {
+            if (hashHistory[i] == h) count++;
+        }
+        return count;
+    }
+
+    /**
+     * Counts the moves applied since the board was last reset; moves played with
+     * {@link #makeMove} are not counted.
+     */
+    public int plyCount() {
+        return historySize - 1;
+    }
+
+    public boolean isThreefoldRepetition() {
+        return repetitionCount() >= 3;
+    }
+
+    /**
+     * Appends the current position hash to the game history.
+     * @param irreversible True if no earlier position can ever recur.
+     */
+    private void recordPosition(boolean irreversible) {
+        if (historySize == hashHistory.length) hashHistory = Arrays.copyOf(hashHistory, historySize * 2);
+        if (irreversible) irreversibleAt = historySize;
+        hashHistory[historySize++] = position.hash();
+    }
+
+    /**
+     * Completes a move applied through {@link #setSquare}: updates side to move,
+     * castling rights and en passant, then records the new position.
+     */
+    private void endMove(int r1, int c1, int r2, int c2, boolean irreversible) {
+        position.finishMove(r1*8+c1, r2*8+c2, epSquare());
+        recordPosition(irreversible);
+    }
+
+    /**
+     * Writes a square on both the char board and its bitboard mirror.
+     */
+    private void setSquare(int r, int c, char p) {
+        board[r][c] = p;
+        position.put(r * 8 + c, p);
     }
 
     /**
@@ -51,6 +209,7 @@ public class BoardModel {
      * @return true if the path is empty.
      */
     public boolean pathClear(int r1, int c1, int r2, int c2) {
+        if (inBounds(r1,c1) && inBounds(r2,c2)) return position.pathClear(r1*8+c1, r2*8+c2);
         int dr = (r2>r1)?1: (r2<r1)?-1:0;
         int dc = (c2>c1)?1: (c2<c1)?-1:0;
         int r = r1 + dr, c = c1 + dc;
@@ -66,6 +225,7 @@ public class BoardModel {
      * Helper to check path clearance on a hypothetical board state.
      */
     public boolean pathClear(char[][] b, int r1, int c1, int r2, int c2) {
+        if (b == board) return pathClear(r1, c1, r2, c2);
         int dr = (r2>r1)?1: (r2<r1)?-1:0;
         int dc = (c2>c1)?1: (c2<c1)?-1:0;
         int r = r1 + dr, c = c1 + dc;
@@ -91,15 +251,18 @@ public class BoardModel {
         if (t!='.' && (Character.isUpperCase(t)==Character.isUpperCase(p))) return false;
         
         int dr = r2 - r1; int dc = c2 - c1; int absdr = Math.abs(dr), absdc = Math.abs(dc);
+        int from = r1*8 + c1;
+        long to = Bitboards.bit(r2*8 + c2);
 
         if (p=='P') {
             if (c1==c2 && board[r2][c2]=='.') { 
                 if (dr==-1) return true; 
                 if (r1==6 && dr==-2 && board[5][c1]=='.') return true; 
             }
-            if (absdc==1 && dr==-1 && t!='.' && Character.isLowerCase(t)) return true;
+            boolean diag = (Bitboards.pawnAttacksFrom(from, 0) & to) != 0;
+            if (diag && t!='.' && Character.isLowerCase(t)) return true;
             /* En-passant capture */
-            if (absdc==1 && dr==-1 && t=='.' && epR==r2 && epC==c2) return true;
+            if (diag && t=='.' && epR==r2 && epC==c2) return true;
             return false;
         }
         if (p=='p') {
@@ -107,17 +270,18 @@ public class BoardModel {
                 if (dr==1) return true; 
                 if (r1==1 && dr==2 && board[2][c1]=='.') return true; 
             }
-            if (absdc==1 && dr==1 && t!='.' && Character.isUpperCase(t)) return true;
-            if (absdc==1 && dr==1 && t=='.' && epR==r2 && epC==c2) return true;
+            boolean diag = (Bitboards.pawnAttacksFrom(from, 1) & to) != 0;
+            if (diag && t!='.' && Character.isUpperCase(t)) return true;
+            if (diag && t=='.' && epR==r2 && epC==c2) return true;
             return false;
         }
-        if (p=='N' || p=='n') return (absdr==2 && absdc==1) || (absdr==1 && absdc==2);
+        if (p=='N' || p=='n') return (Bitboards.knightAttacksFrom(from) & to) != 0;
         if (p=='B' || p=='b') { if (absdr!=absdc) return false; return pathClear(board,r1,c1,r2,c2); }
         if (p=='R' || p=='r') { if (dr!=0 && dc!=0) return false; return pathClear(board,r1,c1,r2,c2); }
         if (p=='Q' || p=='q') { if (absdr==absdc || dr==0 || dc==0) return pathClear(board,r1,c1,r2,c2); return false; }
 
         if (p=='K' || p=='k') {
-            if (absdr<=1 && absdc<=1) return true;
+            if ((Bitboards.kingAttacksFrom(from) & to) != 0) return true;
             /* Client-side castling pre-check */
             if (r1 == r2 && Math.abs(c2 - c1) == 2) {
                 if (p == 'K') {
@@ -173,36 +337,67 @@ public class BoardModel {
 
     /**
      * Determines if a specific square is under attack by the opponent.
+     * Queries against the live board are answered from the bitboards;
+     * hypothetical boards look up the leaper squares from the attack tables
+     * and walk the eight rays outwards from the target.
      */
     public boolean isSquareAttacked(char[][] b, int r, int c, int byColor) {
-        for (int r0=0;r0<8;r0++) for (int c0=0;c0<8;c0++) {
-            char p = b[r0][c0];
-            if (p=='.') continue;
-            int pColor = Character.isUpperCase(p)?0:1;
-            if (pColor != byColor) continue;
-            int dr = r - r0; int dc = c - c0; int absdr = Math.abs(dr), absdc = Math.abs(dc);
-            switch (p) {
-                case 'P': if (r == r0-1 && (c==c0-1 || c==c0+1)) return true; break;
-                case 'p': if (r == r0+1 && (c==c0-1 || c==c0+1)) return true; break;
-                case 'N': case 'n': if ((absdr==2 && absdc==1) || (absdr==1 && absdc==2)) return true; break;
-                case 'B': case 'b': if (absdr==absdc && pathClear(b,r0,c0,r,c)) return true; break;
-                case 'R': case 'r': if ((dr==0 || dc==0) && pathClear(b,r0,c0,r,c)) return true; break;
-                case 'Q': case 'q': if ((absdr==absdc || dr==0 || dc==0) && pathClear(b,r0,c0,r,c)) return true; break;
-                case 'K': case 'k': if (absdr<=1 && absdc<=1) return true; break;
-                default: break;
+        if (b == board) return position.isSquareAttacked(r*8+c, byColor);
+        if (!inBounds(r, c)) return false;
+        int sq = r*8 + c;
+        boolean white = (byColor == 0);
+        if (anyPieceOn(b, Bitboards.knightAttacksFrom(sq), white ? 'N' : 'n')) return true;
+        if (anyPieceOn(b, Bitboards.kingAttacksFrom(sq), white ? 'K' : 'k')) return true;
+        if (anyPieceOn(b, Bitboards.pawnAttacksFrom(sq, 1 - byColor), white ? 'P' : 'p')) return true;
+
+        char queen = white ? 'Q' : 'q';
+        for (int dr = -1; dr <= 1; dr++) for (int dc = -1; dc <= 1; dc++) {
+            if (dr == 0 && dc == 0) continue;
+            char slider = (dr != 0 && dc != 0) ? (white ? 'B' : 'b') : (white ? 'R' : 'r');
+            int r0 = r + dr, c0 = c + dc;
+            while (inBounds(r0, c0)) {
+                char p = b[r0][c0];
+                if (p != '.') {
+                    if (p == slider || p == queen) return true;
+                    break;
+                }
+                r0 += dr; c0 += dc;
             }
         }
         return false;
     }
 
+    /** True if any square of the mask holds the given piece. */
+    private static boolean anyPieceOn(char[][] b, long mask, char piece) {
+        while (mask != 0) {
+            int sq = Long.numberOfTrailingZeros(mask);
+            mask &= mask - 1;
+            if (b[sq >>> 3][sq & 7] == piece) return true;
+        }
+        return false;
+    }
+
+    /** Square index (row * 8 + col) of the given side's king, or -1 if it is missing. */
+    public int kingSquare(int color) {
+        return position.kingSquare(color);
+    }
+
+    /**
+     * True if the given side's king is in check on the live board. For the side
+     * to move this reads the check state cached when the last move was applied.
+     */
+    public boolean isInCheck(int color) {
+        return position.inCheck(color);
+    }
+
     /** Find the king's coordinates for the given color. */
     public int[] findKing(int color) {
-        char target = (color==0)?'K':'k';
-        for (int r=0;r<8;r++) for (int c=0;c<8;c++) if (board[r][c]==target) return new int[]{r,c};
-        return null;
+        int sq = position.kingSquare(color);
+        return (sq < 0) ? null : new int[]{sq/8, sq%8};
     }
 
     public int[] findKing(char[][] b, int color) {
+        if (b == board) return findKing(color);
         char target = (color==0)?'K':'k';
         for (int r=0;r<8;r++) for (int c=0;c<8;c++) if (b[r][c]==target) return new int[]{r,c};
         return null;
@@ -210,8 +405,25 @@ public class BoardModel {
 
     /**
      * Simulates a move to check if it places the player's own king in check.
+     * Moves of the side to move on the live board are answered from the cached
+     * check and pin masks, other live moves are made and unmade in place on the
+     * bitboards, and hypothetical boards are simulated on a copy.
      */
     public boolean moveLeavesInCheck(char[][] b, int color, int r1,int c1,int r2,int c2) {
+        if (b == board) {
+            int move = toMove(r1, c1, r2, c2);
+            if (move != Move.NONE) {
+                if (position.kingSquare(color) < 0) return false;
+                if (color == position.sideToMove() && (move & Move.FLAG_CASTLE) == 0
+                        && BitboardPosition.colorOf(position.pieceIndexAt(r1*8 + c1)) == color) {
+                    return !MoveGenerator.isLegalFast(position, move);
+                }
+                position.makeMove(move);
+                boolean inCheck = position.inCheck(color);
+                position.unmakeMove(move);
+                return inCheck;
+            }
+        }
         char[][] copy = new char[8][8];
         for (int r=0;r<8;r++) System.arraycopy(b[r],0,copy[r],0,8);
         char p = copy[r1][c1];
@@ -254,6 +466,75 @@ public class BoardModel {
         return moveLeavesInCheck(this.board, color, r1,c1,r2,c2);
     }
 
+    /**
+     * Packs a move on the live board into a {@link Move}, inferring capture, en-passant,
+     * castling and double-push flags from the pieces involved. Promotions use
+     * {@link #pendingPromo}, defaulting to a queen.
+     * @return The packed move, or {@link Move#NONE} if the from-square is empty or the
+     *         move looks like castling without king and rook on their home squares.
+     */
+    public int toMove(int r1, int c1, int r2, int c2) {
+        char p = board[r1][c1];
+        if (p == '.') return Move.NONE;
+        char t = board[r2][c2];
+        int from = r1*8+c1, to = r2*8+c2;
+        int flags = (t != '.') ? Move.FLAG_CAPTURE : 0;
+        int promo = 0;
+        if (p == 'P' || p == 'p') {
+            if (t == '.' && c1 != c2 && board[r1][c2] == (p == 'P' ? 'p' : 'P')) flags = Move.FLAG_EN_PASSANT;
+            if (Math.abs(r2 - r1) == 2) flags |= Move.FLAG_DOUBLE_PUSH;
+            if (r2 == 0 || r2 == 7) {
+                int idx = BitboardPosition.pieceIndex(Character.toUpperCase(pendingPromo));
+                promo = (idx > 0 && idx < 5) ? idx : BitboardPosition.QUEEN;
+            }
+        } else if ((p == 'K' || p == 'k') && r1 == r2 && Math.abs(c2 - c1) == 2) {
+            if (c1 != 4 || (r1 != 0 && r1 != 7)) return Move.NONE;
+            if (Character.toUpperCase(board[r1][(c2 > c1) ? 7 : 0]) != 'R') return Move.NONE;
+            flags = Move.FLAG_CASTLE;
+        }
+        return Move.encode(from, to, promo, flags);
+    }
+
+    /**
+     * Plays a packed move in place on both the char board and the bitboards,
+     * recording an undo entry. Meant for search and analysis; it does not touch
+     * the last-move highlight, the pending promotion or the repetition history.
+     */
+    public void makeMove(int move) {
+        position.makeMove(move);
+        refreshSquares(move);
+    }
+
+    /**
+     * Takes back the last move played with {@link #makeMove}.
+     */
+    public void unmakeMove(int move) {
+        position.unmakeMove(move);
+        refreshSquares(move);
+    }
+
+    /**
+     * Copies the squares a move touched from the bitboards back into the char board.
+     */
+    private void refreshSquares(int move) {
+        int from = Move.from(move), to = Move.to(move);
+        board[from/8][from%8] = position.pieceAt(from);
+        board[to/8][to%8] = position.pieceAt(to);
+        if ((move & Move.FLAG_EN_PASSANT) != 0) {
+            int cap = (from/8)*8 + to%8;
+            board[cap/8][cap%8] = position.pieceAt(cap);
+        } else if ((move & Move.FLAG_CASTLE) != 0) {
+            int r = from/8;
+            board[r][0] = position.pieceAt(r*8);
+            board[r][3] = position.pieceAt(r*8+3);
+            board[r][5] = position.pieceAt(r*8+5);
+            board[r][7] = position.pieceAt(r*8+7);
+        }
+        int ep = position.epSquare();
+        epR = (ep < 0) ? -1 : ep/8;
+        epC = (ep < 0) ? -1 : ep%8;
+    }
+
     public static boolean isOwnPiece(char p, int myColor) {
         if (p=='.') return false;
         if (myColor==0) return Character.isUpperCase(p);
@@ -273,22 +554,24 @@ public class BoardModel {
         lastFrom = new Point(r1, c1);
         lastTo = new Point(r2, c2);
         char piece = board[r1][c1];
-        board[r1][c1] = '.';
+        boolean irreversible = piece == 'P' || piece == 'p' || board[r2][c2] != '.';
+        setSquare(r1, c1, '.');
         
         // Castling
         if ((piece == 'K' || piece == 'k') && r1 == r2 && Math.abs(c2 - c1) == 2) {
-            board[r2][c2] = piece;
+            setSquare(r2, c2, piece);
             if (c2 > c1) {
                 int rookR = r2, rookFromC = 7, rookToC = 5;
-                board[rookR][rookToC] = board[rookR][rookFromC];
-                board[rookR][rookFromC] = '.';
+                setSquare(rookR, rookToC, board[rookR][rookFromC]);
+                setSquare(rookR, rookFromC, '.');
             } else {
                 int rookR = r2, rookFromC = 0, rookToC = 3;
-                board[rookR][rookToC] = board[rookR][rookFromC];
-                board[rookR][rookFromC] = '.';
+                setSquare(rookR, rookToC, board[rookR][rookFromC]);
+                setSquare(rookR, rookFromC, '.');
             }
             epR = epC = -1;
             pendingPromo = 0;
+            endMove(r1, c1, r2, c2, true);
             return;
         }
         
@@ -296,11 +579,11 @@ public class BoardModel {
         if ((piece == 'P' || piece == 'p') && board[r2][c2] == '.' && c1 != c2) {
             int capR = (piece == 'P') ? r2 + 1 : r2 - 1;
             if (capR >= 0 && capR < 8 && board[capR][c2] != '.') {
-                board[capR][c2] = '.';
+                setSquare(capR, c2, '.');
             }
         }
         
-        board[r2][c2] = piece;
+        setSquare(r2, c2, piece);
         
         // Set En Passant target
         if (piece == 'P' && r1 == 6 && r2 == 4 && c1 == c2) { epR = 5; epC = c1; }
@@ -309,13 +592,14 @@ public class BoardModel {
         
         // Promotion
         if (piece == 'P' && r2 == 0) {
-            if (pendingPromo != 0) board[r2][c2] = Character.toUpperCase(pendingPromo);
-            else board[r2][c2] = 'Q';
+            if (pendingPromo != 0) setSquare(r2, c2, Character.toUpperCase(pendingPromo));
+            else setSquare(r2, c2, 'Q');
         } else if (piece == 'p' && r2 == 7) {
-            if (pendingPromo != 0) board[r2][c2] = Character.toLowerCase(pendingPromo);
-            else board[r2][c2] = 'q';
+            if (pendingPromo != 0) setSquare(r2, c2, Character.toLowerCase(pendingPromo));
+            else setSquare(r2, c2, 'q');
         }
         pendingPromo = 0;
+        endMove(r1, c1, r2, c2, irreversible);
     }
 
     /**
@@ -323,31 +607,36 @@ public class BoardModel {
      * Expects algebraic notation string (e.g., "e7e5" or "a7a8q").
      */
     public void applyOpponentMove(String mv) {
-        String from = mv.substring(0,2);
-        String to = mv.substring(2,4);
         char promo = (mv.length() >= 5) ? mv.charAt(4) : 0;
-        int r1 = 8 - (from.charAt(1) - '0');
-        int c1 = from.charAt(0) - 'a';
-        int r2 = 8 - (to.charAt(1) - '0');
-        int c2 = to.charAt(0) - 'a';
+        applyOpponentMove(8 - (mv.charAt(1) - '0'), mv.charAt(0) - 'a',
+                          8 - (mv.charAt(3) - '0'), mv.charAt(2) - 'a', promo);
+    }
+
+    /**
+     * Applies an already decoded opponent move.
+     * @param promo Promotion piece letter, or 0 for none.
+     */
+    public void applyOpponentMove(int r1, int c1, int r2, int c2, char promo) {
         lastFrom = new Point(r1, c1);
         lastTo = new Point(r2, c2);
         char piece = board[r1][c1];
-        board[r1][c1] = '.';
+        boolean irreversible = piece == 'P' || piece == 'p' || board[r2][c2] != '.';
+        setSquare(r1, c1, '.');
         
         // Castling
         if ((piece == 'K' || piece == 'k') && r1 == r2 && Math.abs(c2 - c1) == 2) {
-            board[r2][c2] = piece;
+            setSquare(r2, c2, piece);
             if (c2 > c1) {
                 int rookR = r2, rookFromC = 7, rookToC = 5;
-                board[rookR][rookToC] = board[rookR][rookFromC];
-                board[rookR][rookFromC] = '.';
+                setSquare(rookR, rookToC, board[rookR][rookFromC]);
+                setSquare(rookR, rookFromC, '.');
             } else {
                 int rookR = r2, rookFromC = 0, rookToC = 3;
-                board[rookR][rookToC] = board[rookR][rookFromC];
-                board[rookR][rookFromC] = '.';
+                setSquare(rookR, rookToC, board[rookR][rookFromC]);
+                setSquare(rookR, rookFromC, '.');
             }
             epR = epC = -1;
+            endMove(r1, c1, r2, c2, true);
             return;
         }
         
@@ -355,19 +644,19 @@ public class BoardModel {
         if ((piece == 'P' || piece == 'p') && board[r2][c2] == '.' && c1 != c2) {
             int capR = (piece == 'P') ? r2 + 1 : r2 - 1;
             if (capR >= 0 && capR < 8 && board[capR][c2] != '.') {
-                board[capR][c2] = '.';
+                setSquare(capR, c2, '.');
             }
         }
         
-        board[r2][c2] = piece;
+        setSquare(r2, c2, piece);
         
         // Promotion
         if (promo != 0) {
             char promoted = (Character.isUpperCase(piece)) ? Character.toUpperCase(promo) : Character.toLowerCase(promo);
-            board[r2][c2] = promoted;
+            setSquare(r2, c2, promoted);
         } else {
-            if (piece == 'P' && r2 == 0) board[r2][c2] = 'Q';
-            if (piece == 'p' && r2 == 7) board[r2][c2] = 'q';
+            if (piece == 'P' && r2 == 0) setSquare(r2, c2, 'Q');
+            if (piece == 'p' && r2 == 7) setSquare(r2, c2, 'q');
         }
         
         if (Character.toUpperCase(piece) == 'P' && Math.abs(r2 - r1) == 2) {
@@ -376,12 +665,56 @@ public class BoardModel {
         } else {
             epR = epC = -1;
         }
+        endMove(r1, c1, r2, c2, irreversible);
+    }
+
+    /** En-passant target as a square index, or -1 if none. */
+    private int epSquare() {
+        return (epR < 0 || epC < 0) ? -1 : epR*8+epC;
+    }
+
+    /**
+     * Fills {@code moves} with the legal moves of the given color as packed {@link Move}s.
+     * @param moves Buffer of at least {@link MoveGenerator#MAX_MOVES} entries.
+     * @return The number of moves written.
+     */
+    public int generateLegalMoves(int color, int[] moves) {
+        return MoveGenerator.generateLegal(position, color, moves);
+    }
+
+    /**
+     * Counts leaf nodes of the legal move tree from the current position.
+     */
+    public long perft(int depth) {
+        return Perft.perft(position, depth);
+    }
+
+    /**
+     * Replaces the current position with one given in Forsyth-Edwards Notation.
+     */
+    public void loadFen(String fen) {
+        position.setFen(fen);
+        for (int r=0;r<8;r++) for (int c=0;c<8;c++) board[r][c] = position.pieceAt(r*8+c);
+        int ep = position.epSquare();
+        epR = (ep < 0) ? -1 : ep/8;
+        epC = (ep < 0) ? -1 : ep%8;
+        pendingPromo = 0;
+        lastFrom = lastTo = null;
+        historySize = 0;
+        recordPosition(true);
     }
 
     public char[][] getBoardCopy() {
-        char[][] copy = new char[8][8];
-        for (int r=0;r<8;r++) System.arraycopy(board[r],0,copy[r],0,8);
-        return copy;
+        return getBoardCopy(new char[8][8]);
+    }
+
+    /**
+     * Copies the board into a caller-owned 8x8 array, so repeated snapshots can reuse it.
+     * @return The filled array.
+     */
+    public char[][] getBoardCopy(char[][] into) {
+        for (int r=0;r<8;r++) System.arraycopy(board[r],0,into[r],0,8);
+        return into;
     }
 
     @Override
@@ -3,6 +3,7 @@ import java.awt.*;
 import java.awt.event.*;
 import java.io.File;
 import java.io.IOException;
+import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import javax.imageio.ImageIO;
@@ -32,10 +33,18 @@ public class ChessClient {
     
     // Queue for buffering messages when offline
     private final ConcurrentLinkedQueue<String> offlineQueue = new ConcurrentLinkedQueue<>();
+
+    // Traffic and latency counters, kept across reconnects
+    private final ConnectionMetrics metrics = new ConnectionMetrics();
     
-    // Retry limits
-    private int reconnectAttempts = 0;
-    private static final int MAX_RECONNECT_ATTEMPTS = 5;
+    // Paces automatic reconnects
+    private final ReconnectScheduler reconnector = new ReconnectScheduler();
+
+    // Delta resume, EDT only: plies offered with PLY=n in the reconnect HELLO (-1 if none),
+    // and whether the next reconnect must ask for the full HISTORY instead
+    private int resumePly = -1;
+    private boolean fullHistoryNext = false;
+    private boolean resyncPending = false;
     
     // UI Components
     private JFrame frame;
@@ -79,6 +88,13 @@ public class ChessClient {
         this.imageManager = new ImageManager("pieces");
         // Generate a persistent session ID for reconnection support
         this.sessionID = UUID.randomUUID().toString().substring(0, 8);
+        if (Boolean.getBoolean(ConnectionMetrics.JMX_PROPERTY)) {
+            try {
+                metrics.registerMBean();
+            } catch (Exception e) {
+                System.out.println("Could not register connection metrics with JMX: " + e.getMessage());
+            }
+        }
     }
 
     /**
@@ -198,10 +214,10 @@ public class ChessClient {
         NetworkClient nc = this.networkClient;
         this.networkClient = null; 
         if (nc != null) {
-            new Thread(() -> {
+            ThreadSupport.start("NetworkDisconnect", () -> {
                 try { nc.sendRaw(Protocol.CMD_EXT); } catch (Exception ignored) {}
                 nc.closeConnection();
-            }).start();
+            });
         }
     }
 
@@ -215,7 +231,7 @@ public class ChessClient {
         frame.setVisible(false); 
         frame.dispose();
         
-        new Thread(() -> {
+        ThreadSupport.start("NetworkExit", () -> {
             NetworkClient nc = this.networkClient;
             if (nc != null) {
                 try { 
@@ -223,14 +239,15 @@ public class ChessClient {
                 } catch (Exception ignored) {}
                 try { nc.closeConnection(); } catch (Exception ignored) {}
             }
+            System.out.println("Connection metrics: " + metrics);
             System.exit(0);
-        }).start();
+        });
 
         // Fallback force exit
-        new Thread(() -> {
+        ThreadSupport.start("ExitWatchdog", () -> {
             try { Thread.sleep(200); } catch (InterruptedException ignored) {}
             System.exit(0);
-        }).start();
+        });
     }
 
     /**
@@ -296,7 +313,7 @@ public class ChessClient {
         NetworkClient oldClient = this.networkClient;
         if (oldClient != null) {
             this.networkClient = null;
-            new Thread(oldClient::closeConnection).start();
+            ThreadSupport.start("NetworkDisconnect", oldClient::closeConnection);
         }
 
         intentionalDisconnect = false;
@@ -304,10 +321,10 @@ public class ChessClient {
         handshakeCompleted = false; 
         offlineQueue.clear(); 
 
-        this.networkClient = new NetworkClient(createNetworkListener());
+        this.networkClient = new NetworkClient(createNetworkListener(), metrics);
         final NetworkClient clientRef = this.networkClient; 
         
-        Thread t = new Thread(() -> {
+        ThreadSupport.start("NetworkConnect", () -> {
             try {
                 clientRef.connect(serverHost, serverPort, clientName, sessionID);
             } catch (IOException e) {
@@ -317,8 +334,6 @@ public class ChessClient {
                 });
             }
         });
-        t.setDaemon(true);
-        t.start();
     }
 
     /**
@@ -353,11 +368,11 @@ public class ChessClient {
             }
             
             @Override
-            public void onServerMessage(String line) {
+            public void onServerMessage(ServerMessage message) {
                 NetworkClient nc = networkClient;
                 if (nc == null) return;
-                System.out.println("<< " + line);
-                parseServerMessage(line);
+                System.out.println("<< " + message.line());
+                parseServerMessage(message);
             }
             
             @Override
@@ -369,20 +384,15 @@ public class ChessClient {
     }
 
     /**
-     * Logic for automatic reconnection. Attempts to reconnect up to MAX_RECONNECT_ATTEMPTS.
-     * Upon success, flushes any queued offline messages.
+     * Logic for automatic reconnection. The first attempt goes out at once, later ones
+     * with growing, jittered delays until the server's reconnect window has passed
+     * (see {@link ReconnectScheduler}). One NetworkClient serves every attempt.
+     * During a game the HELLO carries the plies on the board, so the server only
+     * sends the moves missed meanwhile. Upon success, flushes any queued offline messages.
      */
     private void attemptReconnect() {
         if (isReconnecting || intentionalDisconnect) return;
         
-        if (reconnectAttempts >= MAX_RECONNECT_ATTEMPTS) {
-            SwingUtilities.invokeLater(() -> {
-                JOptionPane.showMessageDialog(frame, "Unable to reconnect after multiple attempts.", "Connection Failed", JOptionPane.ERROR_MESSAGE);
-                exitToWelcome();
-            });
-            return;
-        }
-        
         if (!connectionEstablished) {
             JOptionPane.showMessageDialog(frame, "Could not connect to server.", "Connection Error", JOptionPane.ERROR_MESSAGE);
             exitToWelcome();
@@ -390,25 +400,46 @@ public class ChessClient {
         }
         
         isReconnecting = true;
-        reconnectAttempts++;
         
         SwingUtilities.invokeLater(() -> {
-            statusLabel.setText("Connection lost. Reconnecting (" + reconnectAttempts + "/" + MAX_RECONNECT_ATTEMPTS + ")...");
+            statusLabel.setText("Connection lost. Reconnecting...");
             statusLabel.setForeground(Color.ORANGE);
             if (lobbyPanel != null) lobbyPanel.setButtonsEnabled(false);
         });
         
-        new Thread(() -> {
-            try {
-                NetworkClient old = networkClient;
-                if (old != null) { networkClient = null; old.closeConnection(); }
-                
-                NetworkClient newNc = new NetworkClient(createNetworkListener());
-                networkClient = newNc;
-                
-                Thread.sleep(1000); 
-                
-                newNc.connect(serverHost, serverPort, clientName, sessionID);
+        NetworkClient old = networkClient;
+        if (old != null) { networkClient = null; old.closeConnection(); }
+        NetworkClient newNc = new NetworkClient(createNetworkListener(), metrics);
+        networkClient = newNc;
+        
+        int knownPly = !fullHistoryNext && gamePanel.isShowing() && !gamePanel.isGameEnded() ? gamePanel.getPlyCount() : -1;
+        fullHistoryNext = false;
+        resumePly = knownPly;
+        
+        reconnector.start(new ReconnectScheduler.Attempt() {
+            @Override
+            public void connect(int timeoutMillis) throws IOException {
+                newNc.connect(serverHost, serverPort, clientName, sessionID, knownPly, timeoutMillis);
+            }
+
+            @Override
+            public void abort() {
+                newNc.closeConnection();
+            }
+        }, new ReconnectScheduler.Listener() {
+            @Override
+            public void onAttempt(int n) {
+                metrics.reconnect();
+                if (n > 1) SwingUtilities.invokeLater(() -> statusLabel.setText("Connection lost. Reconnecting (attempt " + n + ")..."));
+            }
+
+            @Override
+            public void onReconnected(int attempts) {
+                if (intentionalDisconnect || networkClient != newNc) {
+                    // Given up on while the last attempt was connecting
+                    newNc.closeConnection();
+                    return;
+                }
                 
                 // Flush the offline queue immediately after connection
                 String queuedMsg;
@@ -418,26 +449,48 @@ public class ChessClient {
 
                 SwingUtilities.invokeLater(() -> {
                     isReconnecting = false;
-                    reconnectAttempts = 0; 
                     statusLabel.setText("Connected as " + clientName);
                     statusLabel.setForeground(Color.WHITE);
                     if (gamePanel != null && !gamePanel.isGameEnded()) gamePanel.setControlsEnabled(true);
                     if (lobbyPanel != null) lobbyPanel.setButtonsEnabled(true);
                     
                     if (lobbyPanel.isShowing()) sendNetworkCommand(Protocol.CMD_LIST);
+                    
+                    if (resyncPending) {
+                        resyncPending = false;
+                        attemptReconnect();
+                    }
                 });
-            } catch (Exception e) {
+            }
+
+            @Override
+            public void onGaveUp(int attempts, IOException last) {
                 SwingUtilities.invokeLater(() -> {
                     isReconnecting = false; 
-                    if (reconnectAttempts >= MAX_RECONNECT_ATTEMPTS) {
-                         JOptionPane.showMessageDialog(frame, "Server unavailable.", "Error", JOptionPane.ERROR_MESSAGE);
-                         exitToWelcome();
-                    } else {
-                         attemptReconnect(); 
-                    }
+                    if (intentionalDisconnect) return;
+                    JOptionPane.showMessageDialog(frame, "Server unavailable.", "Error", JOptionPane.ERROR_MESSAGE);
+                    exitToWelcome();
                 });
             }
-        }).start();
+        });
+    }
+
+    /**
+     * Plays the moves missed while disconnected onto the board kept from before.
+     * If the server counts a different number of plies than the board holds, the
+     * client reconnects once more and takes the full HISTORY instead.
+     */
+    private void applyHistoryDelta(ServerMessage.History delta) {
+        resumePly = -1;
+        int plies = gamePanel.getPlyCount();
+        if (delta.from != plies) {
+            System.out.println("HISTORY_FROM " + delta.from + " does not match the " + plies + " plies on the board; resyncing.");
+            fullHistoryNext = true;
+            if (isReconnecting) resyncPending = true;
+            else attemptReconnect();
+            return;
+        }
+        gamePanel.applyMissedMoves(delta.moves);
     }
 
     /**
@@ -452,236 +505,230 @@ public class ChessClient {
         lobbyPanel.reset();
         ((CardLayout)cards.getLayout()).show(cards, CARD_WELCOME);
         connectionEstablished = false;
+        reconnector.cancel();
         isReconnecting = false;
+        resumePly = -1;
+        fullHistoryNext = resyncPending = false;
         offlineQueue.clear(); 
         
-        reconnectAttempts = 0; 
         statusLabel.setText("Not connected");
         statusLabel.setForeground(Color.WHITE);
         if (connectBtn != null) connectBtn.setEnabled(true);
     }
 
     /**
-     * Parses messages received from the server and updates the UI accordingly.
-     * Sequence numbers are no longer present in the protocol string.
-     * * @param msg The raw message string from the server.
+     * Updates the UI according to a message received from the server.
+     * Messages arrive already decoded by NetworkClient; handlers read their fields.
+     * * @param msg The decoded server message.
      */
-    private void parseServerMessage(String msg) {
-        String u = msg.trim();
-        
-        if (u.equals(Protocol.RESP_FULL)) {
-            intentionalDisconnect = true; 
-            SwingUtilities.invokeLater(() -> {
-                JOptionPane.showMessageDialog(frame, 
-                    "The server is at maximum capacity. Please try again later.", 
-                    "Server Full", 
-                    JOptionPane.WARNING_MESSAGE);
-                exitToWelcome();
-            });
-            return;
-        }
-
-        if (u.startsWith(Protocol.RESP_WELCOME)) {
-            if (reconnectAttempts > 0) reconnectAttempts = 0;
-            handshakeCompleted = true;
-        }
-
-        if (u.equals("OPP_KICK")) {
-             SwingUtilities.invokeLater(() -> {
-                 closeDisconnectPopup();
-                 showEnd(true, "Opponent was kicked due to illegal input");
-             });
-             return;
-        }
+    private void parseServerMessage(ServerMessage msg) {
+        switch (msg.type) {
+            case FULL:
+                intentionalDisconnect = true; 
+                SwingUtilities.invokeLater(() -> {
+                    JOptionPane.showMessageDialog(frame, 
+                        "The server is at maximum capacity. Please try again later.", 
+                        "Server Full", 
+                        JOptionPane.WARNING_MESSAGE);
+                    exitToWelcome();
+                });
+                break;
 
-        if (u.startsWith(Protocol.RESP_TIME)) {
-            try {
-                remainingSeconds = Integer.parseInt(u.substring(Protocol.RESP_TIME.length()).trim());
-                updateTimerDisplay();
-                if (!turnTimer.isRunning()) turnTimer.start();
-            } catch (Exception ignore){}
-            return;
-        }
+            case WELCOME:
+                handshakeCompleted = true;
+                break;
 
-        if (u.startsWith(Protocol.RESP_RESUME)) {
-            String[] parts = u.split("\\s+");
-            String opponentName = (parts.length >= 2) ? parts[1] : "Unknown";
-            String cStr = (parts.length >= 3) ? parts[2] : "white";
-            int color = cStr.equalsIgnoreCase("white") ? 0 : 1;
-            
-            SwingUtilities.invokeLater(() -> {
-                lobbyTimer.stop();
-                ((CardLayout)cards.getLayout()).show(cards, CARD_GAME);
-                statusLabel.setText("Game Resumed! VS " + opponentName);
-                gamePanel.initGame(color, color == 0);
-                closeDisconnectPopup();
-            });
-            return;
-        }
-        
-        if (u.startsWith(Protocol.RESP_OPP_RESUME)) {
-            SwingUtilities.invokeLater(() -> {
-                closeDisconnectPopup();
-                JOptionPane.showMessageDialog(frame, "Opponent returned. Resuming game.");
-            });
-            return;
-        }
+            case OPP_KICK:
+                SwingUtilities.invokeLater(() -> {
+                    closeDisconnectPopup();
+                    showEnd(true, "Opponent was kicked due to illegal input");
+                });
+                break;
 
-        if (u.startsWith(Protocol.RESP_HISTORY)) {
-            String payload = u.substring(Protocol.RESP_HISTORY.length()).trim();
-            SwingUtilities.invokeLater(() -> {
-                int myColor = gamePanel.getMyColor();
-                gamePanel.initGame(myColor, myColor==0); 
-                
-                if (!payload.isEmpty()) {
-                    String[] moves = payload.split(" ");
-                    for (String mv : moves) if (!mv.isEmpty()) gamePanel.applyOpponentMove(mv);
-                    gamePanel.setTurn((myColor == 0) == (moves.length % 2 == 0));
+            case TIME:
+                if (msg instanceof ServerMessage.Time) {
+                    remainingSeconds = ((ServerMessage.Time) msg).seconds;
+                    updateTimerDisplay();
+                    if (!turnTimer.isRunning()) turnTimer.start();
                 }
-            });
-            return;
-        }
+                break;
 
-        if (u.startsWith(Protocol.RESP_WAIT_CONN)) {
-            SwingUtilities.invokeLater(() -> {
-                statusLabel.setText("Opponent disconnected. Waiting...");
-                turnTimer.stop();
-                if (disconnectPopup == null || !disconnectPopup.isVisible()) {
-                    JOptionPane pane = new JOptionPane("Your opponent is having trouble with their network connection.\n" +
-                                                       "You will win if they can't reconnect within 60 seconds.", 
-                                                       JOptionPane.WARNING_MESSAGE);
-                    disconnectPopup = pane.createDialog(frame, "Opponent Disconnected");
-                    disconnectPopup.setModal(false); 
-                    disconnectPopup.setVisible(true);
-                }
-            });
-            return;
-        }
+            case RESUME: {
+                ServerMessage.Start resume = (ServerMessage.Start) msg;
+                SwingUtilities.invokeLater(() -> {
+                    lobbyTimer.stop();
+                    ((CardLayout)cards.getLayout()).show(cards, CARD_GAME);
+                    statusLabel.setText("Game Resumed! VS " + resume.opponent);
+                    if (resumePly >= 0 && resume.color == gamePanel.getMyColor()) {
+                        // Same game still on the board; HISTORY_FROM brings it up to date
+                        gamePanel.setControlsEnabled(true);
+                    } else {
+                        gamePanel.initGame(resume.color, resume.color == 0);
+                    }
+                    closeDisconnectPopup();
+                });
+                break;
+            }
 
-        if (u.startsWith(Protocol.RESP_LOBBY)) {
-            SwingUtilities.invokeLater(() -> {
-                if (resultOverlay.isEndOverlayShown()) {
-                    pendingLobbyReturn = true;
-                    return;
+            case OPP_RESUME:
+                SwingUtilities.invokeLater(() -> {
+                    closeDisconnectPopup();
+                    JOptionPane.showMessageDialog(frame, "Opponent returned. Resuming game.");
+                });
+                break;
+
+            case HISTORY: {
+                List<String> moves = ((ServerMessage.History) msg).moves;
+                SwingUtilities.invokeLater(() -> resumePly = -1);
+                // Replayed here, off the EDT; the board is refreshed once
+                gamePanel.applyHistory(moves);
+                break;
+            }
+
+            case HISTORY_FROM:
+                if (msg instanceof ServerMessage.History) {
+                    ServerMessage.History delta = (ServerMessage.History) msg;
+                    SwingUtilities.invokeLater(() -> applyHistoryDelta(delta));
                 }
-                switchToLobby();
-            });
-            return;
-        }
+                break;
 
-        if (u.startsWith(Protocol.RESP_ROOMLIST)) {
-            lobbyPanel.updateRoomList(u.substring(Protocol.RESP_ROOMLIST.length()).trim());
-            return;
-        }
+            case WAIT_CONN:
+                SwingUtilities.invokeLater(() -> {
+                    statusLabel.setText("Opponent disconnected. Waiting...");
+                    turnTimer.stop();
+                    if (disconnectPopup == null || !disconnectPopup.isVisible()) {
+                        JOptionPane pane = new JOptionPane("Your opponent is having trouble with their network connection.\n" +
+                                                           "You will win if they can't reconnect within 60 seconds.", 
+                                                           JOptionPane.WARNING_MESSAGE);
+                        disconnectPopup = pane.createDialog(frame, "Opponent Disconnected");
+                        disconnectPopup.setModal(false); 
+                        disconnectPopup.setVisible(true);
+                    }
+                });
+                break;
 
-        if (u.startsWith(Protocol.RESP_WAITING)) {
-            SwingUtilities.invokeLater(() -> {
-                lobbyTimer.stop();
-                ((CardLayout)cards.getLayout()).show(cards, CARD_WAITING);
-                
-                String roomInfo = u.substring(Protocol.RESP_WAITING.length()).trim();
-                statusLabel.setText("Hosting " + roomInfo + ". Waiting for opponent.");
-                waitingPanel.startAnimation();
-            });
-            return;
-        }
+            case LOBBY:
+                SwingUtilities.invokeLater(() -> {
+                    if (resultOverlay.isEndOverlayShown()) {
+                        pendingLobbyReturn = true;
+                        return;
+                    }
+                    switchToLobby();
+                });
+                break;
 
-        if (u.startsWith(Protocol.RESP_START)) {
-            String[] p = u.split("\\s+");
-            String opp = (p.length >= 2) ? p[1] : "Unknown";
-            String cStr = (p.length >= 3) ? p[2] : "white";
-            int color = cStr.equalsIgnoreCase("white") ? 0 : 1;
-            
-            SwingUtilities.invokeLater(() -> {
-                lobbyTimer.stop();
-                waitingPanel.stopAnimation();
-                ((CardLayout)cards.getLayout()).show(cards, CARD_GAME);
-                statusLabel.setText("VS " + opp);
-                gamePanel.initGame(color, color == 0);
-            });
-            return;
-        }
+            case ROOMLIST:
+                lobbyPanel.updateRoomList((ServerMessage.RoomList) msg);
+                break;
 
-        if (u.startsWith(Protocol.RESP_OK_MV)) {
-            if (pendingFrom != null && pendingTo != null) {
+            case WAITING: {
+                String roomInfo = ((ServerMessage.Text) msg).text;
                 SwingUtilities.invokeLater(() -> {
-                    gamePanel.applyLocalMove(pendingFrom, pendingTo);
-                    gamePanel.setTurn(false);
-                    gamePanel.setWaitingForOk(false);
-                    pendingFrom = pendingTo = null;
+                    lobbyTimer.stop();
+                    ((CardLayout)cards.getLayout()).show(cards, CARD_WAITING);
+                    statusLabel.setText("Hosting " + roomInfo + ". Waiting for opponent.");
+                    waitingPanel.startAnimation();
                 });
+                break;
             }
-            return;
-        }
 
-        if (u.startsWith(Protocol.RESP_OPP_MV)) {
-            String[] parts = u.split("\\s+");
-            if (parts.length >= 2) {
-                SwingUtilities.invokeLater(() -> gamePanel.applyOpponentMove(parts[1]));
+            case START: {
+                ServerMessage.Start start = (ServerMessage.Start) msg;
+                SwingUtilities.invokeLater(() -> {
+                    lobbyTimer.stop();
+                    waitingPanel.stopAnimation();
+                    ((CardLayout)cards.getLayout()).show(cards, CARD_GAME);
+                    statusLabel.setText("VS " + start.opponent);
+                    gamePanel.initGame(start.color, start.color == 0);
+                });
+                break;
             }
-            return;
-        }
 
-        if (u.startsWith(Protocol.RESP_ERR)) {
-            String errorMsg = u.substring(4);
-            if (errorMsg.contains("Server is full")) {
-                intentionalDisconnect = true;
-            }
-            SwingUtilities.invokeLater(() -> {
-                JOptionPane.showMessageDialog(frame, "Server Error: " + errorMsg);
-                gamePanel.setWaitingForOk(false);
-                
-                if (errorMsg.contains("Server is full")) {
-                    intentionalDisconnect = true;
-                    exitToWelcome();
-                    return; 
+            case OK_MV:
+                if (pendingFrom != null && pendingTo != null) {
+                    SwingUtilities.invokeLater(() -> {
+                        gamePanel.applyLocalMove(pendingFrom, pendingTo);
+                        gamePanel.setTurn(false);
+                        gamePanel.setWaitingForOk(false);
+                        pendingFrom = pendingTo = null;
+                    });
                 }
+                break;
 
-                if (waitingPanel.isShowing()) {
-                    switchToLobby();
+            case OPP_MV:
+                if (msg instanceof ServerMessage.OppMove) {
+                    ServerMessage.OppMove mv = (ServerMessage.OppMove) msg;
+                    SwingUtilities.invokeLater(() -> gamePanel.applyOpponentMove(mv));
                 }
-                if (lobbyPanel.isShowing()) {
-                    lobbyPanel.setButtonsEnabled(true);
+                break;
+
+            case ERR: {
+                String errorMsg = ((ServerMessage.Text) msg).text;
+                if (errorMsg.contains("Server is full")) {
+                    intentionalDisconnect = true;
                 }
-            });
-            return;
-        }
+                SwingUtilities.invokeLater(() -> {
+                    JOptionPane.showMessageDialog(frame, "Server Error: " + errorMsg);
+                    gamePanel.setWaitingForOk(false);
+                    
+                    if (errorMsg.contains("Server is full")) {
+                        intentionalDisconnect = true;
+                        exitToWelcome();
+                        return; 
+                    }
 
-        boolean isGameEnd = false;
-        if (u.startsWith(Protocol.RESP_WIN_CHKM)) { showEnd(true, "Checkmate"); isGameEnd = true; }
-        else if (u.startsWith(Protocol.RESP_CHKM)) { showEnd(false, "Checkmate"); isGameEnd = true; }
-        else if (u.startsWith(Protocol.RESP_SM)) { showNeutral("Stalemate"); isGameEnd = true; }
-        else if (u.startsWith(Protocol.RESP_OPP_RES)) { showEnd(true, "Opponent Resigned"); isGameEnd = true; }
-        else if (u.startsWith(Protocol.RESP_OPP_EXT)) { showEnd(true, "Opponent Disconnected"); isGameEnd = true; }
-        else if (u.startsWith(Protocol.RESP_RES)) { showEnd(false, "You Resigned"); isGameEnd = true; }
-        else if (u.startsWith(Protocol.RESP_OPP_TOUT)) { showEnd(true, "Opponent Timed Out"); isGameEnd = true; }
-        else if (u.startsWith(Protocol.RESP_TOUT)) { showEnd(false, "You Timed Out"); isGameEnd = true; }
-        else if (u.startsWith(Protocol.RESP_DRW_ACD)) { showNeutral("Draw Agreed"); isGameEnd = true; }
-        
-        if (isGameEnd) {
-            sendNetworkCommand(Protocol.CMD_LIST);
-            turnTimer.stop();
-            SwingUtilities.invokeLater(() -> {
-                timerLabel.setText("--:--");
-                gamePanel.setGameEnded(true);
-            });
-        }
+                    if (waitingPanel.isShowing()) {
+                        switchToLobby();
+                    }
+                    if (lobbyPanel.isShowing()) {
+                        lobbyPanel.setButtonsEnabled(true);
+                    }
+                });
+                break;
+            }
 
-        if (u.startsWith(Protocol.RESP_DRW_OFF)) {
-            SwingUtilities.invokeLater(() -> {
-                int ch = JOptionPane.showConfirmDialog(frame, "Opponent offers draw. Accept?", "Draw?", JOptionPane.YES_NO_OPTION);
-                sendNetworkCommand(ch == JOptionPane.YES_OPTION ? Protocol.CMD_DRW_ACC : Protocol.CMD_DRW_DEC);
-            });
-            return;
-        }
-        if (u.startsWith(Protocol.RESP_DRW_DCD)) {
-            SwingUtilities.invokeLater(() -> {
-                JOptionPane.showMessageDialog(frame, "Draw offer declined");
-                gamePanel.setControlsEnabled(true);
-            });
+            case WIN_CHKM: showEnd(true, "Checkmate"); onGameEnd(); break;
+            case CHKM:     showEnd(false, "Checkmate"); onGameEnd(); break;
+            case SM:       showNeutral("Stalemate"); onGameEnd(); break;
+            case OPP_RES:  showEnd(true, "Opponent Resigned"); onGameEnd(); break;
+            case OPP_EXT:  showEnd(true, "Opponent Disconnected"); onGameEnd(); break;
+            case RES:      showEnd(false, "You Resigned"); onGameEnd(); break;
+            case OPP_TOUT: showEnd(true, "Opponent Timed Out"); onGameEnd(); break;
+            case TOUT:     showEnd(false, "You Timed Out"); onGameEnd(); break;
+            case DRW_ACD:  showNeutral("Draw Agreed"); onGameEnd(); break;
+
+            case DRW_OFF:
+                SwingUtilities.invokeLater(() -> {
+                    int ch = JOptionPane.showConfirmDialog(frame, "Opponent offers draw. Accept?", "Draw?", JOptionPane.YES_NO_OPTION);
+                    sendNetworkCommand(ch == JOptionPane.YES_OPTION ? Protocol.CMD_DRW_ACC : Protocol.CMD_DRW_DEC);
+                });
+                break;
+
+            case DRW_DCD:
+                SwingUtilities.invokeLater(() -> {
+                    JOptionPane.showMessageDialog(frame, "Draw offer declined");
+                    gamePanel.setControlsEnabled(true);
+                });
+                break;
+
+            default:
+                // CHK and unknown lines need no handling beyond the ACK
+                break;
         }
     }
 
+    /**
+     * Common cleanup once the server has announced the end of a game.
+     */
+    private void onGameEnd() {
+        sendNetworkCommand(Protocol.CMD_LIST);
+        turnTimer.stop();
+        SwingUtilities.invokeLater(() -> {
+            timerLabel.setText("--:--");
+            gamePanel.setGameEnded(true);
+        });
+    }
+
     /**
      * Displays the victory or defeat overlay.
      * * @param win True if the local player won, false otherwise.
@@ -0,0 +1,172 @@
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * ConnectionMetrics
+ *
+ * Lock-free counters and latency histograms for the connection to the
+ * server. One instance can outlive many {@link NetworkClient}s, so totals
+ * keep counting across reconnects. Transports report socket bytes and
+ * write-queue depth; NetworkClient reports messages, PING round trips, the
+ * time from sending a move to its OK_MV, and read-timeout closes.
+ *
+ * Everything is readable through the getters at any time, and through JMX
+ * once {@link #registerMBean()} has been called (ChessClient does so with
+ * -Dchess.metrics.jmx=true).
+ */
+public final class ConnectionMetrics implements ConnectionMetricsMBean {
+    /** Enables JMX registration in ChessClient. */
+    public static final String JMX_PROPERTY = "chess.metrics.jmx";
+
+    private final LongAdder bytesIn = new LongAdder();
+    private final LongAdder bytesOut = new LongAdder();
+    private final LongAdder messagesIn = new LongAdder();
+    private final LongAdder messagesOut = new LongAdder();
+    private final LongAdder reconnects = new LongAdder();
+    private final LongAdder timeoutCloses = new LongAdder();
+    private final LongAccumulator writeQueueMax = new LongAccumulator(Math::max, 0);
+    private final Histogram pingRtt = new Histogram();
+    private final Histogram moveAck = new Histogram();
+
+    private volatile Transport transport; // Current connection, for the queue depth gauge
+
+    void bytesIn(int n) { bytesIn.add(n); }
+    void bytesOut(int n) { bytesOut.add(n); }
+    void messageIn() { messagesIn.increment(); }
+    void messageOut() { messagesOut.increment(); }
+    void reconnect() { reconnects.increment(); }
+    void timeoutClose() { timeoutCloses.increment(); }
+
+    /**
+     * Makes the write-queue gauge follow this transport.
+     */
+    void bind(Transport transport) {
+        this.transport = transport;
+    }
+
+    /**
+     * Samples the write-queue depth, keeping the high-water mark.
+     */
+    void queueDepth(int depth) {
+        writeQueueMax.accumulate(depth);
+    }
+
+    void pingRtt(long nanos) { pingRtt.record(nanos / 1000); }
+    void moveAck(long nanos) { moveAck.record(nanos / 1000); }
+
+    @Override public long getBytesIn() { return bytesIn.sum(); }
+    @Override public long getBytesOut() { return bytesOut.sum(); }
+    @Override public long getMessagesIn() { return messagesIn.sum(); }
+    @Override public long getMessagesOut() { return messagesOut.sum(); }
+    @Override public long getReconnects() { return reconnects.sum(); }
+    @Override public long getTimeoutCloses() { return timeoutCloses.sum(); }
+
+    @Override
+    public int getWriteQueueDepth() {
+        Transport t = transport;
+        return t == null ? 0 : t.pendingWrites();
+    }
+
+    @Override public long getWriteQueueMax() { return writeQueueMax.get(); }
+
+    @Override public long getPingCount() { return pingRtt.count(); }
+    @Override public long getPingRttP50Micros() { return pingRtt.percentile(0.50); }
+    @Override public long getPingRttP99Micros() { return pingRtt.percentile(0.99); }
+    @Override public long getPingRttMaxMicros() { return pingRtt.max(); }
+
+    @Override public long getMoveCount() { return moveAck.count(); }
+    @Override public long getMoveAckP50Micros() { return moveAck.percentile(0.50); }
+    @Override public long getMoveAckP99Micros() { return moveAck.percentile(0.99); }
+    @Override public long getMoveAckMaxMicros() { return moveAck.max(); }
+
+    /** PING to PNG round trips, in microseconds. */
+    public Histogram pingRtt() { return pingRtt; }
+    /** MV to OK_MV times, in microseconds. */
+    public Histogram moveAck() { return moveAck; }
+
+    /**
+     * Registers these metrics with the platform MBean server as
+     * "chess.client:type=Connection".
+     */
+    public void registerMBean() throws JMException {
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName("chess.client:type=Connection"));
+    }
+
+    @Override
+    public String toString() {
+        return String.format("in=%d msgs/%d B out=%d msgs/%d B queue=%d (max %d) ping p50/p99=%d/%d us mv p50/p99=%d/%d us reconnects=%d timeouts=%d",
+                getMessagesIn(), getBytesIn(), getMessagesOut(), getBytesOut(),
+                getWriteQueueDepth(), getWriteQueueMax(),
+                getPingRttP50Micros(), getPingRttP99Micros(),
+                getMoveAckP50Micros(), getMoveAckP99Micros(),
+                getReconnects(), getTimeoutCloses());
+    }
+
+    /**
+     * Log-linear histogram in the style of HdrHistogram: every power of two is
+     * split into 32 buckets, so values are kept to within about 3%. Values up
+     * to 2^37 are tracked, larger ones land in the top bucket. Recording is a
+     * single atomic increment; reads see a consistent-enough view without
+     * stopping writers.
+     */
+    public static final class Histogram {
+        private static final int SUB_BITS = 5;
+        private static final int SUB = 1 << SUB_BITS;
+        private static final long MAX_VALUE = (1L << 37) - 1;
+        private static final int BUCKETS = index(MAX_VALUE) + 1;
+
+        private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+        private final LongAdder total = new LongAdder();
+        private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+        /**
+         * Records one value; negative values count as 0.
+         */
+        public void record(long value) {
+            long v = Math.max(0, Math.min(value, MAX_VALUE));
+            counts.incrementAndGet(index(v));
+            total.increment();
+            max.accumulate(v);
+        }
+
+        public long count() {
+            return total.sum();
+        }
+
+        public long max() {
+            return max.get();
+        }
+
+        /**
+         * Returns the value below which the given fraction of recorded values fall.
+         * @param fraction Between 0 and 1, e.g. 0.99.
+         * @return The upper edge of the bucket holding that value, capped at the maximum; 0 when empty.
+         */
+        public long percentile(double fraction) {
+            long n = count();
+            if (n == 0) return 0;
+            long rank = Math.max(1, (long) Math.ceil(fraction * n));
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += counts.get(i);
+                if (seen >= rank) return Math.min(upper(i), max());
+            }
+            return max();
+        }
+
+        private static int index(long v) {
+            int shift = Math.max(0, 63 - Long.numberOfLeadingZeros(v) - SUB_BITS);
+            return shift * SUB + (int) (v >>> shift);
+        }
+
+        private static long upper(int index) {
+            int shift = Math.max(0, index / SUB - 1);
+            long sub = index - shift * SUB;
+            return ((sub + 1) << shift) - 1;
+        }
+    }
+}
@@ -0,0 +1,28 @@
+/**
+ * ConnectionMetricsMBean
+ *
+ * JMX view of {@link ConnectionMetrics}. Latencies are in microseconds.
+ */
+public interface ConnectionMetricsMBean {
+    long getBytesIn();
+    long getBytesOut();
+    long getMessagesIn();
+    long getMessagesOut();
+    long getReconnects();
+    long getTimeoutCloses();
+
+    /** Lines queued on the current connection and not yet written. */
+    int getWriteQueueDepth();
+    long getWriteQueueMax();
+
+    long getPingCount();
+    long getPingRttP50Micros();
+    long getPingRttP99Micros();
+    long getPingRttMaxMicros();
+
+    /** Moves answered with OK_MV. */
+    long getMoveCount();
+    long getMoveAckP50Micros();
+    long getMoveAckP99Micros();
+    long getMoveAckMaxMicros();
+}
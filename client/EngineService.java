@@ -0,0 +1,55 @@
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+/**
+ * EngineService
+ *
+ * Runs {@link ParallelSearch} searches off the EDT: the main search on a
+ * single background thread, helpers on the search's own pool. Only one
+ * search runs at a time; submitting a new one cancels the previous search.
+ */
+public class EngineService {
+    private final ParallelSearch engine = new ParallelSearch();
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "EngineSearch");
+        t.setDaemon(true);
+        return t;
+    });
+    private Future<?> current;
+
+    /**
+     * Starts a search of the given position.
+     *
+     * @param snapshot Position to search; the caller must not modify it afterwards.
+     * @param maxDepth Iteration limit in plies.
+     * @param timeMillis Time budget in milliseconds.
+     * @param onResult Called on the search thread with the result, unless the search was cancelled.
+     */
+    public synchronized void submit(BitboardPosition snapshot, int maxDepth, long timeMillis,
+                                    Consumer<SearchResult> onResult) {
+        cancel();
+        current = executor.submit(() -> {
+            SearchResult result = engine.search(snapshot, maxDepth, timeMillis);
+            if (!Thread.currentThread().isInterrupted()) onResult.accept(result);
+        });
+    }
+
+    /**
+     * Stops the running search, if any, and discards its result.
+     */
+    public synchronized void cancel() {
+        if (current != null) {
+            engine.stop();
+            current.cancel(true);
+            current = null;
+        }
+    }
+
+    public void shutdown() {
+        cancel();
+        executor.shutdownNow();
+        engine.shutdown();
+    }
+}
@@ -0,0 +1,124 @@
+/**
+ * Evaluator
+ *
+ * Static position evaluation for {@link SearchEngine}: material plus
+ * piece-square tables, with the king table blended from middlegame to
+ * endgame by the amount of material left. Scores are in centipawns from
+ * the point of view of the side to move.
+ *
+ * Tables are written from White's side with rank 8 on top, which matches the
+ * square layout of {@link BitboardPosition}; Black reads them mirrored.
+ */
+public final class Evaluator {
+    private Evaluator() {}
+
+    /** Material values by piece type: P N B R Q K */
+    public static final int[] PIECE_VALUE = { 100, 320, 330, 500, 900, 0 };
+
+    /** Game phase weight by piece type; 24 means all minor and major pieces are on the board. */
+    private static final int[] PHASE_WEIGHT = { 0, 1, 1, 2, 4, 0 };
+    private static final int MAX_PHASE = 24;
+
+    private static final int[] PAWN_PST = {
+          0,   0,   0,   0,   0,   0,   0,   0,
+         50,  50,  50,  50,  50,  50,  50,  50,
+         10,  10,  20,  30,  30,  20,  10,  10,
+          5,   5,  10,  25,  25,  10,   5,   5,
+          0,   0,   0,  20,  20,   0,   0,   0,
+          5,  -5, -10,   0,   0, -10,  -5,   5,
+          5,  10,  10, -20, -20,  10,  10,   5,
+          0,   0,   0,   0,   0,   0,   0,   0
+    };
+    private static final int[] KNIGHT_PST = {
+        -50, -40, -30, -30, -30, -30, -40, -50,
+        -40, -20,   0,   0,   0,   0, -20, -40,
+        -30,   0,  10,  15,  15,  10,   0, -30,
+        -30,   5,  15,  20,  20,  15,   5, -30,
+        -30,   0,  15,  20,  20,  15,   0, -30,
+        -30,   5,  10,  15,  15,  10,   5, -30,
+        -40, -20,   0,   5,   5,   0, -20, -40,
+        -50, -40, -30, -30, -30, -30, -40, -50
+    };
+    private static final int[] BISHOP_PST = {
+        -20, -10, -10, -10, -10, -10, -10, -20,
+        -10,   0,   0,   0,   0,   0,   0, -10,
+        -10,   0,   5,  10,  10,   5,   0, -10,
+        -10,   5,   5,  10,  10,   5,   5, -10,
+        -10,   0,  10,  10,  10,  10,   0, -10,
+        -10,  10,  10,  10,  10,  10,  10, -10,
+        -10,   5,   0,   0,   0,   0,   5, -10,
+        -20, -10, -10, -10, -10, -10, -10, -20
+    };
+    private static final int[] ROOK_PST = {
+          0,   0,   0,   0,   0,   0,   0,   0,
+          5,  10,  10,  10,  10,  10,  10,   5,
+         -5,   0,   0,   0,   0,   0,   0,  -5,
+         -5,   0,   0,   0,   0,   0,   0,  -5,
+         -5,   0,   0,   0,   0,   0,   0,  -5,
+         -5,   0,   0,   0,   0,   0,   0,  -5,
+         -5,   0,   0,   0,   0,   0,   0,  -5,
+          0,   0,   0,   5,   5,   0,   0,   0
+    };
+    private static final int[] QUEEN_PST = {
+        -20, -10, -10,  -5,  -5, -10, -10, -20,
+        -10,   0,   0,   0,   0,   0,   0, -10,
+        -10,   0,   5,   5,   5,   5,   0, -10,
+         -5,   0,   5,   5,   5,   5,   0,  -5,
+          0,   0,   5,   5,   5,   5,   0,  -5,
+        -10,   5,   5,   5,   5,   5,   0, -10,
+        -10,   0,   5,   0,   0,   0,   0, -10,
+        -20, -10, -10,  -5,  -5, -10, -10, -20
+    };
+    private static final int[] KING_MG_PST = {
+        -30, -40, -40, -50, -50, -40, -40, -30,
+        -30, -40, -40, -50, -50, -40, -40, -30,
+        -30, -40, -40, -50, -50, -40, -40, -30,
+        -30, -40, -40, -50, -50, -40, -40, -30,
+        -20, -30, -30, -40, -40, -30, -30, -20,
+        -10, -20, -20, -20, -20, -20, -20, -10,
+         20,  20,   0,   0,   0,   0,  20,  20,
+         20,  30,  10,   0,   0,  10,  30,  20
+    };
+    private static final int[] KING_EG_PST = {
+        -50, -40, -30, -20, -20, -30, -40, -50,
+        -30, -20, -10,   0,   0, -10, -20, -30,
+        -30, -10,  20,  30,  30,  20, -10, -30,
+        -30, -10,  30,  40,  40,  30, -10, -30,
+        -30, -10,  30,  40,  40,  30, -10, -30,
+        -30, -10,  20,  30,  30,  20, -10, -30,
+        -30, -30,   0,   0,   0,   0, -30, -30,
+        -50, -30, -30, -30, -30, -30, -30, -50
+    };
+    private static final int[][] PST = { PAWN_PST, KNIGHT_PST, BISHOP_PST, ROOK_PST, QUEEN_PST };
+
+    /**
+     * Evaluates a position from the side to move's point of view.
+     */
+    public static int evaluate(BitboardPosition p) {
+        int score = 0;
+        int phase = 0;
+        for (int color = 0; color < 2; color++) {
+            int sign = (color == BitboardPosition.WHITE) ? 1 : -1;
+            int flip = (color == BitboardPosition.WHITE) ? 0 : 56;
+            for (int type = BitboardPosition.PAWN; type <= BitboardPosition.QUEEN; type++) {
+                long bb = p.pieces[color * 6 + type];
+                int[] table = PST[type];
+                while (bb != 0) {
+                    int sq = Long.numberOfTrailingZeros(bb);
+                    bb &= bb - 1;
+                    score += sign * (PIECE_VALUE[type] + table[sq ^ flip]);
+                    phase += PHASE_WEIGHT[type];
+                }
+            }
+        }
+        if (phase > MAX_PHASE) phase = MAX_PHASE;
+        for (int color = 0; color < 2; color++) {
+            int k = p.kingSquare(color);
+            if (k < 0) continue;
+            int sq = (color == BitboardPosition.WHITE) ? k : k ^ 56;
+            int kingScore = (KING_MG_PST[sq] * phase + KING_EG_PST[sq] * (MAX_PHASE - phase)) / MAX_PHASE;
+            score += (color == BitboardPosition.WHITE) ? kingScore : -kingScore;
+        }
+        return (p.sideToMove == BitboardPosition.WHITE) ? score : -score;
+    }
+}
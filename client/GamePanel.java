@@ -2,6 +2,7 @@ import javax.swing.*;
 import java.awt.*;
 import java.awt.event.*;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 /**
@@ -20,8 +21,12 @@ public class GamePanel extends JPanel {
     private final JPanel boardContainer;
     private final JButton resignBtn;
     private final JButton drawBtn;
+    private final JButton hintBtn;
+    private final EngineService engine = new EngineService();
     
     private static final int SQUARE_SIZE = 64;
+    private static final int HINT_MAX_DEPTH = 64;
+    private static final long HINT_TIME_MS = 1500;
 
     // Game State Local Cache
     private char[][] board;
@@ -31,6 +36,7 @@ public class GamePanel extends JPanel {
     // Selection State
     private int selR = -1, selC = -1;
     private Set<Point> highlighted = new HashSet<>();
+    private final int[] moveBuffer = new int[MoveGenerator.MAX_MOVES];
     private boolean waitingForOk = false;
     private boolean gameEnded = false;
     private boolean interactionEnabled = true;
@@ -41,6 +47,11 @@ public class GamePanel extends JPanel {
     private Point lastFrom = null;
     private Point lastTo = null;
 
+    // Engine Hint State
+    private Point hintFrom = null;
+    private Point hintTo = null;
+    private int hintGeneration = 0;
+
     public GamePanel(ChessClient controller, ImageManager imageManager) {
         this.controller = controller;
         this.imageManager = imageManager;
@@ -92,8 +103,10 @@ public class GamePanel extends JPanel {
         JPanel ctrl = new JPanel(new FlowLayout(FlowLayout.CENTER, 8, 0));
         resignBtn = new JButton("Resign");
         drawBtn = new JButton("Offer Draw");
+        hintBtn = new JButton("Hint");
         resignBtn.setEnabled(false);
         drawBtn.setEnabled(false);
+        hintBtn.setEnabled(false);
         
         resignBtn.addActionListener(e -> {
             int ok = JOptionPane.showConfirmDialog(this, "Resign?", "Confirm", JOptionPane.YES_NO_OPTION);
@@ -111,6 +124,9 @@ public class GamePanel extends JPanel {
             }
         });
         
+        hintBtn.addActionListener(e -> requestHint());
+        
+        ctrl.add(hintBtn);
         ctrl.add(drawBtn);
         ctrl.add(resignBtn);
         add(ctrl, BorderLayout.SOUTH);
@@ -134,6 +150,7 @@ public class GamePanel extends JPanel {
         this.selR = -1;
         this.selC = -1;
         this.highlighted.clear();
+        clearHint();
         
         setControlsEnabled(true);
         updateBoardUI();
@@ -142,11 +159,20 @@ public class GamePanel extends JPanel {
     public int getMyColor() {
         return myColor;
     }
+
+    /**
+     * Returns the number of moves on the board, all of them confirmed by the server.
+     */
+    public int getPlyCount() {
+        return boardModel.plyCount();
+    }
     
     public void setControlsEnabled(boolean enabled) {
         this.interactionEnabled = enabled;
         resignBtn.setEnabled(enabled);
         drawBtn.setEnabled(enabled);
+        hintBtn.setEnabled(enabled);
+        if (!enabled) clearHint();
     }
 
     public void applyLocalMove(String from, String to) {
@@ -159,17 +185,74 @@ public class GamePanel extends JPanel {
         // Clear selection
         selR = selC = -1;
         highlighted.clear();
+        clearHint();
         
         updateBoardUI();
     }
 
     public void applyOpponentMove(String mv) {
         boardModel.applyOpponentMove(mv);
+        afterOpponentMove();
+    }
+
+    public void applyOpponentMove(ServerMessage.OppMove mv) {
+        boardModel.applyOpponentMove(mv.fromRow, mv.fromCol, mv.toRow, mv.toCol, mv.promo);
+        afterOpponentMove();
+    }
+
+    /**
+     * Replays a whole game history (HISTORY after a reconnect) from the starting
+     * position. The moves are played and checked on a board of its own on the
+     * calling thread, so a long game costs the EDT one copy and one board refresh.
+     * May be called from any thread; the result is shown in EDT order.
+     */
+    public void applyHistory(List<String> moves) {
+        BoardModel replay = new BoardModel();
+        checkReplay(moves, replay.applyHistory(moves));
+        SwingUtilities.invokeLater(() -> showReplay(replay));
+    }
+
+    /**
+     * Plays the moves missed while disconnected (HISTORY_FROM) onto the current
+     * board, with a single refresh at the end. EDT only.
+     */
+    public void applyMissedMoves(List<String> moves) {
+        BoardModel replay = new BoardModel();
+        replay.copyFrom(boardModel);
+        checkReplay(moves, replay.applyHistory(moves));
+        showReplay(replay);
+    }
+
+    private static void checkReplay(List<String> moves, int applied) {
+        if (applied < moves.size()) {
+            System.out.println("History move " + (applied + 1) + " (" + moves.get(applied) + ") is not legal here; "
+                    + (moves.size() - applied) + " move(s) skipped.");
+        }
+    }
+
+    /**
+     * Shows a replayed position in place of the current one. EDT only.
+     */
+    private void showReplay(BoardModel replay) {
+        boardModel.copyFrom(replay);
+        this.board = boardModel.board;
+        lastFrom = boardModel.lastFrom;
+        lastTo = boardModel.lastTo;
+        myTurn = boardModel.getPosition().sideToMove() == myColor;
+        waitingForOk = false;
+        selR = selC = -1;
+        highlighted.clear();
+        clearHint();
+        updateBoardUI();
+    }
+
+    private void afterOpponentMove() {
         this.board = boardModel.board;
         lastFrom = boardModel.lastFrom;
         lastTo = boardModel.lastTo;
         myTurn = true;
         waitingForOk = false;
+        clearHint();
         updateBoardUI();
     }
     
@@ -214,6 +297,8 @@ public class GamePanel extends JPanel {
                         squares[uiR][uiC].setBorder(BorderFactory.createLineBorder(Color.RED, 3));
                     } else if (highlighted.contains(new Point(modelR, modelC))) {
                         squares[uiR][uiC].setBorder(BorderFactory.createLineBorder(Color.GREEN, 3));
+                    } else if (isHintSquare(modelR, modelC)) {
+                        squares[uiR][uiC].setBorder(BorderFactory.createLineBorder(Color.CYAN, 3));
                     } else if (isLastFrom || isLastTo) {
                         squares[uiR][uiC].setBorder(BorderFactory.createLineBorder(Color.YELLOW, 3));
                     } else {
@@ -229,13 +314,64 @@ public class GamePanel extends JPanel {
         if (myColor != 0 && myColor != 1) {
             kingInCheck = false; kingR = kingC = -1; return;
         }
-        int[] pos = boardModel.findKing(board, myColor);
-        if (pos == null) {
+        int sq = boardModel.kingSquare(myColor);
+        if (sq < 0) {
             kingInCheck = false; kingR = kingC = -1; return;
         }
-        kingR = pos[0];
-        kingC = pos[1];
-        kingInCheck = boardModel.isSquareAttacked(board, kingR, kingC, 1 - myColor);
+        kingR = sq / 8;
+        kingC = sq % 8;
+        kingInCheck = boardModel.isInCheck(myColor);
+    }
+
+    /**
+     * Searches the current position in the background and marks the suggested move.
+     * Results that arrive after the position changed are dropped.
+     */
+    private void requestHint() {
+        if (!myTurn || waitingForOk || gameEnded) return;
+        BitboardPosition snapshot = new BitboardPosition();
+        snapshot.copyFrom(boardModel.getPosition());
+        if (snapshot.sideToMove() != myColor) return;
+
+        final int generation = ++hintGeneration;
+        hintBtn.setEnabled(false);
+        engine.submit(snapshot, HINT_MAX_DEPTH, HINT_TIME_MS, result -> SwingUtilities.invokeLater(() -> {
+            if (generation != hintGeneration) return;
+            hintBtn.setEnabled(interactionEnabled);
+            if (result.bestMove == Move.NONE) return;
+            int from = Move.from(result.bestMove), to = Move.to(result.bestMove);
+            hintFrom = new Point(from / 8, from % 8);
+            hintTo = new Point(to / 8, to % 8);
+            updateBoardUI();
+        }));
+    }
+
+    /**
+     * Cancels any running hint search and removes the hint from the board.
+     */
+    private void clearHint() {
+        hintGeneration++;
+        engine.cancel();
+        hintFrom = hintTo = null;
+        hintBtn.setEnabled(interactionEnabled && !gameEnded);
+    }
+
+    private boolean isHintSquare(int r, int c) {
+        return (hintFrom != null && hintFrom.x == r && hintFrom.y == c)
+            || (hintTo != null && hintTo.x == r && hintTo.y == c);
+    }
+
+    /**
+     * Highlights every legal destination of the selected piece.
+     */
+    private void highlightLegalTargets() {
+        highlighted.clear();
+        int from = selR * 8 + selC;
+        int n = boardModel.generateLegalMoves(myColor, moveBuffer);
+        for (int i = 0; i < n; i++) {
+            int m = moveBuffer[i];
+            if (Move.from(m) == from) highlighted.add(new Point(Move.to(m) / 8, Move.to(m) % 8));
+        }
     }
 
     private void onSquareClicked(int uiR, int uiC) {
@@ -253,16 +389,7 @@ public class GamePanel extends JPanel {
 
             selR = r; 
             selC = c;
-            highlighted.clear();
-            
-            // Calculate pseudo-legal moves locally
-            for (int tr = 0; tr < 8; tr++) {
-                for (int tc = 0; tc < 8; tc++) {
-                    if (!boardModel.isLegalMoveBasic(selR, selC, tr, tc)) continue;
-                    if (boardModel.moveLeavesInCheck(board, myColor, selR, selC, tr, tc)) continue;
-                    highlighted.add(new Point(tr, tc));
-                }
-            }
+            highlightLegalTargets();
             updateBoardUI();
         } 
         // 2. Move or Deselect
@@ -314,15 +441,7 @@ public class GamePanel extends JPanel {
             char p = board[r][c];
             if (p != '.' && BoardModel.isOwnPiece(p, myColor)) {
                 selR = r; selC = c;
-                highlighted.clear();
-                for (int tr = 0; tr < 8; tr++) {
-                    for (int tc = 0; tc < 8; tc++) {
-                        if (boardModel.isLegalMoveBasic(selR, selC, tr, tc) && 
-                            !boardModel.moveLeavesInCheck(board, myColor, selR, selC, tr, tc)) {
-                            highlighted.add(new Point(tr, tc));
-                        }
-                    }
-                }
+                highlightLegalTargets();
                 updateBoardUI();
             } else {
                 // Clicked empty or enemy -> Deselect
@@ -0,0 +1,145 @@
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HashedWheelTimer
+ *
+ * One timer thread for the short, coarse timeouts of every connection in
+ * the JVM (heartbeats, read timeouts). Timeouts are hashed into a ring of
+ * buckets by their deadline tick; each tick the thread expires one bucket,
+ * so scheduling and cancelling are O(1) no matter how many are pending.
+ *
+ * Precision is one tick. Tasks run on the timer thread and must not block;
+ * a slow task delays every other timeout.
+ */
+final class HashedWheelTimer implements Runnable {
+    private static final long DEFAULT_TICK_MS = Long.getLong("chess.net.timerTickMs", 50);
+    private static final int DEFAULT_WHEEL_SIZE = 512;
+
+    private static HashedWheelTimer shared;
+
+    /**
+     * A scheduled task. Cancelled timeouts are dropped lazily when their bucket comes round.
+     */
+    static final class Timeout {
+        private final Runnable task;
+        private final long deadline; // Nanos since the timer started
+        private long remainingRounds;
+        private Timeout next;        // Bucket list, timer thread only
+        private volatile boolean cancelled;
+
+        private Timeout(Runnable task, long deadline) {
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        /**
+         * Prevents the task from running, unless it already has.
+         */
+        void cancel() {
+            cancelled = true;
+        }
+
+        boolean isCancelled() {
+            return cancelled;
+        }
+    }
+
+    private final long tickNanos;
+    private final Timeout[] wheel;
+    private final int mask;
+    private final long startTime;
+    private final Queue<Timeout> pending = new ConcurrentLinkedQueue<>();
+    private long tick = 0;
+
+    private HashedWheelTimer(String name, long tickMillis, int wheelSize) {
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, tickMillis));
+        this.wheel = new Timeout[Integer.highestOneBit(Math.max(2, wheelSize) * 2 - 1)];
+        this.mask = wheel.length - 1;
+        this.startTime = System.nanoTime();
+        Thread t = new Thread(this, name);
+        t.setDaemon(true);
+        t.start();
+    }
+
+    /**
+     * The process-wide timer, started on first use.
+     */
+    static synchronized HashedWheelTimer shared() {
+        if (shared == null) shared = new HashedWheelTimer("NetworkTimer", DEFAULT_TICK_MS, DEFAULT_WHEEL_SIZE);
+        return shared;
+    }
+
+    /**
+     * Schedules a task to run once after the given delay. Callable from any thread.
+     */
+    Timeout newTimeout(Runnable task, long delayMillis) {
+        long deadline = System.nanoTime() - startTime + TimeUnit.MILLISECONDS.toNanos(Math.max(0, delayMillis));
+        Timeout timeout = new Timeout(task, deadline);
+        pending.add(timeout);
+        return timeout;
+    }
+
+    @Override
+    public void run() {
+        while (true) {
+            long deadline = (tick + 1) * tickNanos;
+            long sleepNanos = deadline - (System.nanoTime() - startTime);
+            if (sleepNanos > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(sleepNanos);
+                } catch (InterruptedException ignored) {
+                    // Daemon thread lives as long as the JVM
+                }
+                continue;
+            }
+            transferPending();
+            expire((int) (tick & mask), deadline);
+            tick++;
+        }
+    }
+
+    /**
+     * Moves newly scheduled timeouts into their buckets.
+     */
+    private void transferPending() {
+        Timeout t;
+        while ((t = pending.poll()) != null) {
+            if (t.cancelled) continue;
+            long due = t.deadline / tickNanos;
+            t.remainingRounds = (due - tick) / wheel.length;
+            int idx = (int) (Math.max(due, tick) & mask); // Overdue ones go in the current bucket
+            t.next = wheel[idx];
+            wheel[idx] = t;
+        }
+    }
+
+    /**
+     * Runs the timeouts of one bucket that are due this round.
+     */
+    private void expire(int idx, long deadline) {
+        Timeout prev = null;
+        Timeout t = wheel[idx];
+        while (t != null) {
+            Timeout next = t.next;
+            boolean due = t.remainingRounds <= 0 && t.deadline <= deadline;
+            if (t.cancelled || due) {
+                if (prev == null) wheel[idx] = next;
+                else prev.next = next;
+                t.next = null;
+                if (!t.cancelled) {
+                    try {
+                        t.task.run();
+                    } catch (RuntimeException e) {
+                        e.printStackTrace();
+                    }
+                }
+            } else {
+                t.remainingRounds--;
+                prev = t;
+            }
+            t = next;
+        }
+    }
+}
@@ -0,0 +1,134 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * LineFramer
+ *
+ * Splits inbound bytes into '\n'-terminated frames for a
+ * {@link Transport.Handler}. Each frame is collected in a reusable byte
+ * array and classified straight from the bytes: "PNG" heartbeat replies
+ * and two-digit ACK codes are reported without creating a String, so only
+ * payload lines cost an allocation. A trailing '\r' is dropped.
+ *
+ * Once {@link #upgrade} is called from a handler callback, the rest of the
+ * input is passed on to a {@link BinaryCodec.Decoder} instead.
+ *
+ * Not thread-safe; each transport feeds its framer from one thread.
+ */
+final class LineFramer {
+    private static final byte LF = '\n';
+    private static final byte CR = '\r';
+    static final int MAX_LINE = 64 * 1024;
+
+    private final Transport.Handler handler;
+    private byte[] line = new byte[128];
+    private int len = 0;
+    private boolean closed = false;
+    private BinaryCodec.Decoder next; // Set once the connection switches to BIN1
+
+    LineFramer(Transport.Handler handler) {
+        this.handler = handler;
+    }
+
+    /**
+     * Frames the bytes of an array slice.
+     * @throws IOException If a line grows beyond {@link #MAX_LINE} bytes.
+     */
+    void feed(byte[] src, int off, int n) throws IOException {
+        if (next != null) {
+            next.feed(src, off, n);
+            return;
+        }
+        int end = off + n;
+        while (off < end && !closed) {
+            int lf = off;
+            while (lf < end && src[lf] != LF) lf++;
+            append(lf - off);
+            System.arraycopy(src, off, line, len, lf - off);
+            len += lf - off;
+            if (lf == end) return;
+            off = lf + 1;
+            frame();
+            if (next != null) {
+                next.feed(src, off, end - off);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Frames the remaining bytes of a buffer, leaving it fully consumed.
+     * @throws IOException If a line grows beyond {@link #MAX_LINE} bytes.
+     */
+    void feed(ByteBuffer src) throws IOException {
+        if (next != null) {
+            next.feed(src);
+            return;
+        }
+        while (src.hasRemaining() && !closed) {
+            int start = src.position();
+            int end = src.limit();
+            int lf = start;
+            while (lf < end && src.get(lf) != LF) lf++;
+            append(lf - start);
+            src.get(line, len, lf - start);
+            len += lf - start;
+            if (lf == end) return;
+            src.get(); // The LF itself
+            frame();
+            if (next != null) {
+                next.feed(src);
+                return;
+            }
+        }
+        src.position(src.limit());
+    }
+
+    /**
+     * Stops delivery; bytes fed afterwards, and the rest of the current feed, are dropped.
+     */
+    void close() {
+        closed = true;
+        len = 0;
+        if (next != null) next.close();
+    }
+
+    /**
+     * Hands all bytes after the current line to a BIN1 decoder. Only valid
+     * from inside a handler callback made by this framer.
+     */
+    void upgrade(BinaryCodec.Decoder decoder) {
+        next = decoder;
+    }
+
+    private void append(int n) throws IOException {
+        if (len + n <= line.length) return;
+        if (len + n > MAX_LINE) throw new IOException("Inbound line exceeds " + MAX_LINE + " bytes");
+        line = Arrays.copyOf(line, Math.min(MAX_LINE, Math.max(line.length * 2, len + n)));
+    }
+
+    /**
+     * Hands the collected frame to the handler and resets the buffer.
+     */
+    private void frame() {
+        int n = (len > 0 && line[len - 1] == CR) ? len - 1 : len;
+        len = 0;
+        try {
+            if (n == 3 && line[0] == 'P' && line[1] == 'N' && line[2] == 'G') {
+                handler.onPong();
+            } else if (n == 2 && isDigit(line[0]) && isDigit(line[1])) {
+                handler.onAck((line[0] - '0') * 10 + (line[1] - '0'));
+            } else {
+                handler.onLine(new String(line, 0, n, StandardCharsets.UTF_8));
+            }
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static boolean isDigit(byte b) {
+        return b >= '0' && b <= '9';
+    }
+}
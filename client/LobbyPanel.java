@@ -162,31 +162,19 @@ public class LobbyPanel extends JPanel {
     /**
      * Updates the displayed list of rooms based on the server response.
      */
-    public void updateRoomList(String payload) {
+    public void updateRoomList(ServerMessage.RoomList list) {
         SwingUtilities.invokeLater(() -> setButtonsEnabled(true));
 
+        String payload = list.payload;
         if (payload.equals(lastRoomListPayload)) return;
         lastRoomListPayload = payload;
 
         SwingUtilities.invokeLater(() -> {
             String selectedVal = roomList.getSelectedValue();
             roomListModel.clear();
+            for (String r : list.rooms) roomListModel.addElement(r);
             
-            boolean isEmpty = payload.equals("EMPTY") || payload.isEmpty();
-            
-            if (!isEmpty) {
-                String[] rooms = payload.split(" ");
-                boolean foundAny = false;
-                for (String r : rooms) {
-                    if (!r.isEmpty()) {
-                        roomListModel.addElement(r);
-                        foundAny = true;
-                    }
-                }
-                isEmpty = !foundAny;
-            }
-            
-            if (isEmpty) {
+            if (list.rooms.isEmpty()) {
                 centerLayout.show(centerContainer, "EMPTY");
             } else {
                 centerLayout.show(centerContainer, "LIST");
@@ -0,0 +1,104 @@
+/**
+ * MessageType
+ *
+ * Every kind of line the server sends, keyed by its leading token, with the
+ * ACK code the client answers it with. {@link #of(String)} finds the type
+ * in one pass: it hashes the characters up to the first space into a small
+ * open-addressing table and confirms the hit with a region compare. Tokens
+ * are matched whole, so prefixes of one another (RES and RESUME, CHK, CHKM
+ * and WIN_CHKM, OPP_RES and OPP_RESUME) can never be confused, whatever the
+ * declaration order.
+ */
+public enum MessageType {
+    WELCOME(Protocol.RESP_WELCOME, Protocol.ACK_GENERIC),
+    FULL(Protocol.RESP_FULL, Protocol.ACK_GENERIC),
+    TIME(Protocol.RESP_TIME, Protocol.ACK_GENERIC),
+    RESUME(Protocol.RESP_RESUME, Protocol.ACK_RESUME),
+    OPP_RESUME(Protocol.RESP_OPP_RESUME, Protocol.ACK_RESUME),
+    HISTORY(Protocol.RESP_HISTORY, Protocol.ACK_GENERIC),
+    HISTORY_FROM(Protocol.RESP_HISTORY_FROM, Protocol.ACK_GENERIC),
+    WAIT_CONN(Protocol.RESP_WAIT_CONN, Protocol.ACK_GENERIC),
+    LOBBY(Protocol.RESP_LOBBY, Protocol.ACK_LOBBY),
+    ROOMLIST(Protocol.RESP_ROOMLIST, Protocol.ACK_GENERIC),
+    WAITING(Protocol.RESP_WAITING, Protocol.ACK_WAIT),
+    START(Protocol.RESP_START, Protocol.ACK_START),
+    OK_MV(Protocol.RESP_OK_MV, Protocol.ACK_ACCEPT_MOVE),
+    OPP_MV(Protocol.RESP_OPP_MV, Protocol.ACK_OPP_MOVE),
+    CHK(Protocol.RESP_CHK, Protocol.ACK_CHECK),
+    ERR(Protocol.RESP_ERR, Protocol.ACK_ERR),
+    WIN_CHKM(Protocol.RESP_WIN_CHKM, Protocol.ACK_WIN_BY_CHKM),
+    CHKM(Protocol.RESP_CHKM, Protocol.ACK_LOST_BY_CHKM),
+    SM(Protocol.RESP_SM, Protocol.ACK_STALEMATE),
+    RES(Protocol.RESP_RES, Protocol.ACK_RESIGN_SC),
+    OPP_RES(Protocol.RESP_OPP_RES, Protocol.ACK_OPP_RESIGN),
+    TOUT(Protocol.RESP_TOUT, Protocol.ACK_TOUT),
+    OPP_TOUT(Protocol.RESP_OPP_TOUT, Protocol.ACK_OPP_TOUT),
+    OPP_EXT(Protocol.RESP_OPP_EXT, Protocol.ACK_OPP_QUIT),
+    OPP_KICK(Protocol.RESP_OPP_KICK, Protocol.ACK_GENERIC),
+    DRW_OFF(Protocol.RESP_DRW_OFF, Protocol.ACK_DRW_OFF_SC),
+    DRW_ACD(Protocol.RESP_DRW_ACD, Protocol.ACK_DRW_ACC),
+    DRW_DCD(Protocol.RESP_DRW_DCD, Protocol.ACK_DRW_DEC),
+    /** Anything with an unrecognised leading token, including an empty line. */
+    UNKNOWN("", Protocol.ACK_GENERIC);
+
+    /** Leading token on the wire. */
+    public final String token;
+    /** ACK code sent back on receipt. */
+    public final String ack;
+
+    MessageType(String token, String ack) {
+        this.token = token;
+        this.ack = ack;
+    }
+
+    private static final MessageType[] TABLE = new MessageType[64]; // Power of two, under half full
+    private static final int MASK = TABLE.length - 1;
+
+    static {
+        for (MessageType t : values()) {
+            if (t == UNKNOWN) continue;
+            int i = hash(t.token, t.token.length()) & MASK;
+            while (TABLE[i] != null) i = (i + 1) & MASK;
+            TABLE[i] = t;
+        }
+    }
+
+    /**
+     * Classifies a server line by its leading token.
+     * @param line The line, without leading whitespace.
+     * @return The matching type, or {@link #UNKNOWN}.
+     */
+    public static MessageType of(String line) {
+        if (line == null) return UNKNOWN;
+        int end = tokenEnd(line);
+        if (end == 0) return UNKNOWN;
+        int i = hash(line, end) & MASK;
+        MessageType t;
+        while ((t = TABLE[i]) != null) {
+            if (t.token.length() == end && line.regionMatches(0, t.token, 0, end)) return t;
+            i = (i + 1) & MASK;
+        }
+        return UNKNOWN;
+    }
+
+    /**
+     * Returns the text after the leading token, trimmed; empty if there is none.
+     */
+    public String payload(String line) {
+        return line.length() > token.length() ? line.substring(token.length()).trim() : "";
+    }
+
+    private static int tokenEnd(String s) {
+        int n = s.length();
+        for (int i = 0; i < n; i++) {
+            if (s.charAt(i) <= ' ') return i;
+        }
+        return n;
+    }
+
+    private static int hash(String s, int len) {
+        int h = 0;
+        for (int i = 0; i < len; i++) h = 31 * h + s.charAt(i);
+        return h ^ (h >>> 7) ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,120 @@
+/**
+ * MessageTypeCheck
+ *
+ * Self-check for {@link MessageType}: every server token must classify to
+ * its own type and answer with the ACK code the server expects, also when
+ * another token is a prefix of it (RES and RESUME, CHK, CHKM and WIN_CHKM,
+ * ...), and tokens that merely start with a known one must stay UNKNOWN.
+ * The expected ACK codes are spelled out rather than taken from
+ * {@link Protocol}, so a changed constant shows up here.
+ *
+ * Usage:
+ *   java MessageTypeCheck           run all cases; exits with 1 on a failure
+ */
+public final class MessageTypeCheck {
+    /** Line as received, expected type, expected ACK, expected payload. */
+    private static final Object[][] CASES = {
+        // Every token, bare
+        { "WELCOME", MessageType.WELCOME, "99", "" },
+        { "FULL", MessageType.FULL, "99", "" },
+        { "TIME", MessageType.TIME, "99", "" },
+        { "RESUME", MessageType.RESUME, "26", "" },
+        { "OPP_RESUME", MessageType.OPP_RESUME, "26", "" },
+        { "HISTORY", MessageType.HISTORY, "99", "" },
+        { "HISTORY_FROM", MessageType.HISTORY_FROM, "99", "" },
+        { "WAIT_CONN", MessageType.WAIT_CONN, "99", "" },
+        { "LOBBY", MessageType.LOBBY, "27", "" },
+        { "ROOMLIST", MessageType.ROOMLIST, "99", "" },
+        { "WAITING", MessageType.WAITING, "02", "" },
+        { "START", MessageType.START, "03", "" },
+        { "OK_MV", MessageType.OK_MV, "05", "" },
+        { "OPP_MV", MessageType.OPP_MV, "06", "" },
+        { "CHK", MessageType.CHK, "07", "" },
+        { "ERR", MessageType.ERR, "04", "" },
+        { "WIN_CHKM", MessageType.WIN_CHKM, "09", "" },
+        { "CHKM", MessageType.CHKM, "08", "" },
+        { "SM", MessageType.SM, "25", "" },
+        { "RES", MessageType.RES, "13", "" },
+        { "OPP_RES", MessageType.OPP_RES, "14", "" },
+        { "TOUT", MessageType.TOUT, "15", "" },
+        { "OPP_TOUT", MessageType.OPP_TOUT, "16", "" },
+        { "OPP_EXT", MessageType.OPP_EXT, "17", "" },
+        { "OPP_KICK", MessageType.OPP_KICK, "99", "" },
+        { "DRW_OFF", MessageType.DRW_OFF, "10", "" },
+        { "DRW_ACD", MessageType.DRW_ACD, "12", "" },
+        { "DRW_DCD", MessageType.DRW_DCD, "11", "" },
+
+        // Tokens that are prefixes of one another, with payloads
+        { "RES", MessageType.RES, "13", "" },
+        { "RESUME WHITE alice", MessageType.RESUME, "26", "WHITE alice" },
+        { "OPP_RES", MessageType.OPP_RES, "14", "" },
+        { "OPP_RESUME", MessageType.OPP_RESUME, "26", "" },
+        { "CHK", MessageType.CHK, "07", "" },
+        { "CHKM", MessageType.CHKM, "08", "" },
+        { "WIN_CHKM", MessageType.WIN_CHKM, "09", "" },
+        { "TOUT", MessageType.TOUT, "15", "" },
+        { "OPP_TOUT", MessageType.OPP_TOUT, "16", "" },
+        { "WAIT_CONN bob", MessageType.WAIT_CONN, "99", "bob" },
+        { "WAITING 3", MessageType.WAITING, "02", "3" },
+        { "HISTORY e2e4 e7e5", MessageType.HISTORY, "99", "e2e4 e7e5" },
+        { "HISTORY_FROM 2 g1f3", MessageType.HISTORY_FROM, "99", "2 g1f3" },
+        { "OPP_MV e2e4", MessageType.OPP_MV, "06", "e2e4" },
+        { "TIME  30 ", MessageType.TIME, "99", "30" },
+        { "ERR\tIllegal Move", MessageType.ERR, "04", "Illegal Move" },
+
+        // Unknown tokens, including ones that start with a known token
+        { "RESX", MessageType.UNKNOWN, "99", null },
+        { "RESUMED", MessageType.UNKNOWN, "99", null },
+        { "CHKMATE", MessageType.UNKNOWN, "99", null },
+        { "OPP_", MessageType.UNKNOWN, "99", null },
+        { "WAIT", MessageType.UNKNOWN, "99", null },
+        { "res", MessageType.UNKNOWN, "99", null },
+        { "PNG", MessageType.UNKNOWN, "99", null },
+        { "", MessageType.UNKNOWN, "99", null },
+        { " RES", MessageType.UNKNOWN, "99", null },
+    };
+
+    private MessageTypeCheck() {}
+
+    public static void main(String[] args) {
+        int failures = 0;
+        for (Object[] c : CASES) {
+            String line = (String) c[0];
+            MessageType expected = (MessageType) c[1];
+            MessageType t = MessageType.of(line);
+            if (t != expected) {
+                failures++;
+                System.out.println(String.format("FAIL of(\"%s\") = %s, expected %s", line, t, expected));
+                continue;
+            }
+            if (!t.ack.equals(c[2])) {
+                failures++;
+                System.out.println(String.format("FAIL ack of %s = %s, expected %s", t, t.ack, c[2]));
+            }
+            if (c[3] != null && !t.payload(line).equals(c[3])) {
+                failures++;
+                System.out.println(String.format("FAIL payload(\"%s\") = \"%s\", expected \"%s\"", line, t.payload(line), c[3]));
+            }
+        }
+
+        // Every type is covered above, so a new one cannot slip in unchecked
+        for (MessageType t : MessageType.values()) {
+            boolean covered = false;
+            for (Object[] c : CASES) covered |= c[1] == t;
+            if (!covered) {
+                failures++;
+                System.out.println("FAIL no case for " + t);
+            }
+        }
+        if (MessageType.of(null) != MessageType.UNKNOWN) {
+            failures++;
+            System.out.println("FAIL of(null) is not UNKNOWN");
+        }
+
+        if (failures > 0) {
+            System.out.println("MessageType check FAILED (" + failures + ")");
+            System.exit(1);
+        }
+        System.out.println("MessageType check passed (" + CASES.length + " cases)");
+    }
+}
@@ -0,0 +1,58 @@
+/**
+ * Move
+ *
+ * Helpers for moves packed into a single int, so move lists can live in
+ * preallocated int[] buffers instead of object lists.
+ *
+ * Layout (low to high bits):
+ *  0-5   from square (row * 8 + col, as in {@link BitboardPosition})
+ *  6-11  to square
+ *  12-14 promotion piece type (0 = none, otherwise KNIGHT..QUEEN)
+ *  15-18 flags: capture, double pawn push, en passant, castling
+ */
+public final class Move {
+    private Move() {}
+
+    public static final int NONE = 0;
+
+    public static final int FLAG_CAPTURE     = 1 << 15;
+    public static final int FLAG_DOUBLE_PUSH = 1 << 16;
+    public static final int FLAG_EN_PASSANT  = 1 << 17;
+    public static final int FLAG_CASTLE      = 1 << 18;
+
+    private static final char[] PROMO_CHARS = { 0, 'n', 'b', 'r', 'q' };
+
+    public static int encode(int from, int to, int promo, int flags) {
+        return from | (to << 6) | (promo << 12) | flags;
+    }
+
+    public static int from(int move) { return move & 63; }
+
+    public static int to(int move) { return (move >>> 6) & 63; }
+
+    public static int promo(int move) { return (move >>> 12) & 7; }
+
+    public static boolean isCapture(int move) { return (move & (FLAG_CAPTURE | FLAG_EN_PASSANT)) != 0; }
+
+    /** Promotion piece letter, lowercase, or 0 for none. */
+    public static char promoChar(int move) { return PROMO_CHARS[promo(move)]; }
+
+    /**
+     * Promotion piece type for a piece letter of either case.
+     * @return KNIGHT..QUEEN, or 0 if the letter is not a promotion piece.
+     */
+    public static int promoType(char c) {
+        c = Character.toLowerCase(c);
+        for (int i = 1; i < PROMO_CHARS.length; i++) if (PROMO_CHARS[i] == c) return i;
+        return 0;
+    }
+
+    /**
+     * Formats a move in protocol notation, e.g. "e2e4" or "a7a8q".
+     */
+    public static String toAlg(int move) {
+        int from = from(move), to = to(move);
+        String s = Utils.coordToAlg(from / 8, from % 8) + Utils.coordToAlg(to / 8, to % 8);
+        return (promo(move) == 0) ? s : s + promoChar(move);
+    }
+}
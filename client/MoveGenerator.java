@@ -0,0 +1,225 @@
+/**
+ * MoveGenerator
+ *
+ * Generates legal moves for a {@link BitboardPosition} into a caller-supplied
+ * int[] buffer of packed {@link Move}s. Nothing is allocated per call.
+ *
+ * Pseudo-legal moves are filtered by recomputing the attacks on the own king
+ * with the occupancy the move would leave behind, so no board is copied or
+ * modified to test legality. For the side to move, the checkers and pinned
+ * masks cached in the position settle most moves without that test: an
+ * unpinned piece other than the king can only go wrong by failing to answer
+ * a check.
+ */
+public final class MoveGenerator {
+    private MoveGenerator() {}
+
+    /** Upper bound on the number of legal moves in any chess position. */
+    public static final int MAX_MOVES = 256;
+
+    // Rows a pawn reaches with a single push from its starting row
+    private static final long ROW_2 = 0xFFL << 16;
+    private static final long ROW_5 = 0xFFL << 40;
+    private static final long PROMO_ROWS = 0xFFL | (0xFFL << 56);
+
+    /**
+     * Fills {@code moves} with every legal move of the side to move.
+     * @return The number of moves written.
+     */
+    public static int generateLegal(BitboardPosition p, int[] moves) {
+        return generateLegal(p, p.sideToMove, moves);
+    }
+
+    /**
+     * Fills {@code moves} with every legal move of the given color. En-passant
+     * captures are only produced when that color is also the side to move.
+     * @return The number of moves written.
+     */
+    public static int generateLegal(BitboardPosition p, int color, int[] moves) {
+        int n = generatePseudoLegal(p, color, moves);
+        int legal = 0;
+        if (color == p.sideToMove) {
+            for (int i = 0; i < n; i++) {
+                int m = moves[i];
+                if (isLegalFast(p, m)) moves[legal++] = m;
+            }
+        } else {
+            for (int i = 0; i < n; i++) {
+                int m = moves[i];
+                if (isLegal(p, color, m)) moves[legal++] = m;
+            }
+        }
+        return legal;
+    }
+
+    /**
+     * Tests a pseudo-legal move of the side to move, using the cached check
+     * and pin state. Only king moves, en-passant captures and moves of pinned
+     * pieces need the full {@link #isLegal} test.
+     */
+    public static boolean isLegalFast(BitboardPosition p, int move) {
+        int color = p.sideToMove;
+        int from = Move.from(move);
+        int king = p.kingSquare(color);
+        if (from == king || (move & Move.FLAG_EN_PASSANT) != 0 || ((p.pinned() >>> from) & 1) != 0) {
+            return isLegal(p, color, move);
+        }
+        long checkers = p.checkers();
+        if (checkers == 0) return true;
+        // Double check: only the king may move. Single check: capture or block the checker.
+        if ((checkers & (checkers - 1)) != 0) return false;
+        long evasions = checkers | Bitboards.between(king, Long.numberOfTrailingZeros(checkers));
+        return ((evasions >>> Move.to(move)) & 1) != 0;
+    }
+
+    /**
+     * Tests whether a pseudo-legal move of the given color leaves its own king safe.
+     */
+    public static boolean isLegal(BitboardPosition p, int color, int move) {
+        int from = Move.from(move), to = Move.to(move);
+        int them = 1 - color;
+        long fromBb = 1L << from, toBb = 1L << to;
+
+        if ((move & Move.FLAG_CASTLE) != 0) return true; // Transit squares checked at generation
+
+        if (p.mailbox[from] == color * 6 + BitboardPosition.KING) {
+            long occ = (p.all & ~fromBb) | toBb;
+            return (p.attackersTo(to, them, occ) & ~toBb) == 0;
+        }
+
+        int king = p.kingSquare(color);
+        if (king < 0) return true;
+        long removed = toBb;
+        long occ = (p.all & ~fromBb) | toBb;
+        if ((move & Move.FLAG_EN_PASSANT) != 0) {
+            long capBb = 1L << (color == BitboardPosition.WHITE ? to + 8 : to - 8);
+            occ &= ~capBb;
+            removed |= capBb;
+        }
+        return (p.attackersTo(king, them, occ) & ~removed) == 0;
+    }
+
+    /**
+     * Generates moves that obey piece movement rules but may leave the own king in check.
+     * @return The number of moves written.
+     */
+    public static int generatePseudoLegal(BitboardPosition p, int color, int[] moves) {
+        int n = 0;
+        int base = color * 6;
+        long own = p.occupancy[color];
+        long enemy = p.occupancy[1 - color];
+        long empty = ~p.all;
+
+        // Pawns
+        long pawns = p.pieces[base + BitboardPosition.PAWN];
+        long single, dbl, capL, capR;
+        int push, left, right;
+        if (color == BitboardPosition.WHITE) {
+            single = (pawns >>> 8) & empty;
+            dbl = ((single & ROW_5) >>> 8) & empty;
+            capL = (pawns >>> 9) & ~Bitboards.FILE_H & enemy;
+            capR = (pawns >>> 7) & ~Bitboards.FILE_A & enemy;
+            push = -8; left = -9; right = -7;
+        } else {
+            single = (pawns << 8) & empty;
+            dbl = ((single & ROW_2) << 8) & empty;
+            capL = (pawns << 7) & ~Bitboards.FILE_H & enemy;
+            capR = (pawns << 9) & ~Bitboards.FILE_A & enemy;
+            push = 8; left = 7; right = 9;
+        }
+        n = addPawnMoves(moves, n, single, push, 0);
+        while (dbl != 0) {
+            int to = Long.numberOfTrailingZeros(dbl);
+            dbl &= dbl - 1;
+            moves[n++] = Move.encode(to - 2 * push, to, 0, Move.FLAG_DOUBLE_PUSH);
+        }
+        n = addPawnMoves(moves, n, capL, left, Move.FLAG_CAPTURE);
+        n = addPawnMoves(moves, n, capR, right, Move.FLAG_CAPTURE);
+        if (p.epSquare >= 0 && color == p.sideToMove) {
+            long attackers = Bitboards.pawnAttacksFrom(p.epSquare, 1 - color) & pawns;
+            while (attackers != 0) {
+                int from = Long.numberOfTrailingZeros(attackers);
+                attackers &= attackers - 1;
+                moves[n++] = Move.encode(from, p.epSquare, 0, Move.FLAG_EN_PASSANT);
+            }
+        }
+
+        // Pieces
+        long occ = p.all;
+        long bb = p.pieces[base + BitboardPosition.KNIGHT];
+        while (bb != 0) {
+            int from = Long.numberOfTrailingZeros(bb);
+            bb &= bb - 1;
+            n = addMoves(moves, n, from, Bitboards.knightAttacksFrom(from) & ~own, enemy);
+        }
+        bb = p.pieces[base + BitboardPosition.BISHOP] | p.pieces[base + BitboardPosition.QUEEN];
+        while (bb != 0) {
+            int from = Long.numberOfTrailingZeros(bb);
+            bb &= bb - 1;
+            n = addMoves(moves, n, from, Bitboards.bishopAttacks(from, occ) & ~own, enemy);
+        }
+        bb = p.pieces[base + BitboardPosition.ROOK] | p.pieces[base + BitboardPosition.QUEEN];
+        while (bb != 0) {
+            int from = Long.numberOfTrailingZeros(bb);
+            bb &= bb - 1;
+            n = addMoves(moves, n, from, Bitboards.rookAttacks(from, occ) & ~own, enemy);
+        }
+        int king = p.kingSquare(color);
+        if (king >= 0) {
+            n = addMoves(moves, n, king, Bitboards.kingAttacksFrom(king) & ~own, enemy);
+            n = addCastling(p, color, king, moves, n);
+        }
+        return n;
+    }
+
+    private static int addPawnMoves(int[] moves, int n, long targets, int delta, int flags) {
+        while (targets != 0) {
+            int to = Long.numberOfTrailingZeros(targets);
+            targets &= targets - 1;
+            int from = to - delta;
+            if (((1L << to) & PROMO_ROWS) != 0) {
+                moves[n++] = Move.encode(from, to, BitboardPosition.QUEEN, flags);
+                moves[n++] = Move.encode(from, to, BitboardPosition.ROOK, flags);
+                moves[n++] = Move.encode(from, to, BitboardPosition.BISHOP, flags);
+                moves[n++] = Move.encode(from, to, BitboardPosition.KNIGHT, flags);
+            } else {
+                moves[n++] = Move.encode(from, to, 0, flags);
+            }
+        }
+        return n;
+    }
+
+    private static int addMoves(int[] moves, int n, int from, long targets, long enemy) {
+        while (targets != 0) {
+            int to = Long.numberOfTrailingZeros(targets);
+            long toBb = targets & -targets;
+            targets &= targets - 1;
+            moves[n++] = Move.encode(from, to, 0, ((toBb & enemy) != 0) ? Move.FLAG_CAPTURE : 0);
+        }
+        return n;
+    }
+
+    private static int addCastling(BitboardPosition p, int color, int king, int[] moves, int n) {
+        int rights = p.castling;
+        int home = (color == BitboardPosition.WHITE) ? 60 : 4;
+        if (king != home) return n;
+        int kingSide = (color == BitboardPosition.WHITE) ? BitboardPosition.CASTLE_WK : BitboardPosition.CASTLE_BK;
+        int queenSide = (color == BitboardPosition.WHITE) ? BitboardPosition.CASTLE_WQ : BitboardPosition.CASTLE_BQ;
+        if ((rights & (kingSide | queenSide)) == 0) return n;
+        int them = 1 - color;
+        int rook = color * 6 + BitboardPosition.ROOK;
+        if (p.isSquareAttacked(home, them)) return n;
+
+        if ((rights & kingSide) != 0 && p.mailbox[home + 3] == rook
+                && (p.all & ((1L << (home + 1)) | (1L << (home + 2)))) == 0
+                && !p.isSquareAttacked(home + 1, them) && !p.isSquareAttacked(home + 2, them)) {
+            moves[n++] = Move.encode(home, home + 2, 0, Move.FLAG_CASTLE);
+        }
+        if ((rights & queenSide) != 0 && p.mailbox[home - 4] == rook
+                && (p.all & ((1L << (home - 1)) | (1L << (home - 2)) | (1L << (home - 3)))) == 0
+                && !p.isSquareAttacked(home - 1, them) && !p.isSquareAttacked(home - 2, them)) {
+            moves[n++] = Move.encode(home, home - 2, 0, Move.FLAG_CASTLE);
+        }
+        return n;
+    }
+}
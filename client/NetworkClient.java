@@ -1,12 +1,5 @@
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.OutputStreamWriter;
-import java.io.PrintWriter;
-import java.net.Socket;
-import java.nio.charset.StandardCharsets;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
 import java.time.LocalTime;
 import java.time.format.DateTimeFormatter;
 
@@ -14,9 +7,31 @@ import java.time.format.DateTimeFormatter;
  * NetworkClient
  *
  * Handles low-level TCP socket communication for the chess application.
- * Manages separate threads for reading, writing, and heartbeats to ensure
- * a responsive UI. Communication follows a line-based text protocol with
+ * Bytes move through a pluggable {@link Transport}: blocking sockets with
+ * reader and writer threads by default, or non-blocking channels sharing
+ * one selector thread (-Dchess.net.transport=nio) when many connections
+ * run in one JVM. Communication follows a line-based text protocol with
  * an automated acknowledgement handshake layer.
+ *
+ * PINGs and read-timeout checks of all connections are driven by one shared
+ * {@link HashedWheelTimer}. Intervals are configurable through
+ * chess.net.heartbeatMs, chess.net.readTimeoutMs and
+ * chess.net.heartbeatJitterPct; the jitter keeps many clients started
+ * together from sending their PINGs in lockstep.
+ *
+ * With -Dchess.net.protocol=bin1 the client offers the compact binary wire
+ * format of {@link BinaryCodec} in HELLO; it stays on text unless the
+ * server accepts.
+ *
+ * The client also offers delayed ACKs (unless -Dchess.net.ack=immediate).
+ * Once the server accepts, an ACK is held back and goes out just ahead of
+ * the next outbound line, in the same flush, or on its own after
+ * chess.net.ackDelayMs; one ACK then covers every message received before
+ * it. Servers that do not accept get one ACK per message, immediately.
+ *
+ * Traffic, PING round trips and move confirmation times are counted into a
+ * {@link ConnectionMetrics}, which callers may share between the clients
+ * of successive reconnects.
  */
 public class NetworkClient {
     /**
@@ -35,9 +50,9 @@ public class NetworkClient {
 
         /**
          * Invoked when a complete protocol message is received from the server.
-         * @param line The raw message payload without sequencing suffixes.
+         * @param message The message, decoded once on the network thread.
          */
-        void onServerMessage(String line);
+        void onServerMessage(ServerMessage message);
 
         /**
          * Invoked when a networking exception occurs.
@@ -46,34 +61,106 @@ public class NetworkClient {
         void onNetworkError(Exception ex);
     }
 
+    /** Selects the transport: "blocking" (default) or "nio". */
+    public static final String TRANSPORT_PROPERTY = "chess.net.transport";
+    /** Selects the wire format offered in HELLO: "text" (default) or "bin1". */
+    public static final String PROTOCOL_PROPERTY = "chess.net.protocol";
+    /** Selects the ACK mode offered in HELLO: "delayed" (default) or "immediate". */
+    public static final String ACK_PROPERTY = "chess.net.ack";
+
     private final NetworkListener listener;
-    private Socket socket;
-    private BufferedReader in;
-    private PrintWriter out;
-    
-    private Thread readerThread;
-    private Thread heartbeatThread;
-    private Thread writerThread;
-    private final BlockingQueue<String> writeQueue = new LinkedBlockingQueue<>();
+    private final Transport transport;
+    private final ConnectionMetrics metrics;
+    private volatile long pingSentNanos = 0; // 0 when no PING is outstanding
+    private volatile long moveSentNanos = 0; // 0 when no MV awaits its OK_MV
+
+    private volatile HashedWheelTimer.Timeout pingTimeout;
+    private volatile HashedWheelTimer.Timeout readTimeout;
     
     private volatile long lastRxTime = 0;
-    private static final long HEARTBEAT_INTERVAL = 2000; 
-    private static final long READ_TIMEOUT = 10000;      
+    private static final long HEARTBEAT_INTERVAL = Long.getLong("chess.net.heartbeatMs", 2000);
+    private static final long READ_TIMEOUT = Long.getLong("chess.net.readTimeoutMs", 10000);
+    private static final int HEARTBEAT_JITTER_PCT = Integer.getInteger("chess.net.heartbeatJitterPct", 10);
+    /** Connect timeout used when the caller does not give one. */
+    private static final int CONNECT_TIMEOUT = Integer.getInteger("chess.net.connectTimeoutMs", 10000);
 
     private volatile boolean closed = false;
-    private volatile boolean connected = false;
+    private volatile boolean open = false;      // Transport opening or open: inbound lines are handled
+    private volatile boolean connected = false; // HELLO queued: outbound lines are accepted
+    private final boolean offerBinary = "bin1".equalsIgnoreCase(System.getProperty(PROTOCOL_PROPERTY));
+    private boolean binary = false; // Transport thread only
+
+    private static final long ACK_DELAY = Long.getLong("chess.net.ackDelayMs", 40);
+    private final boolean offerDelayedAck = !"immediate".equalsIgnoreCase(System.getProperty(ACK_PROPERTY));
+    private volatile boolean delayedAck = false;
+    private final Object ackLock = new Object();
+    private String pendingAck; // Guarded by ackLock
+    private int pendingCount; // Messages covered by pendingAck; guarded by ackLock
+    private HashedWheelTimer.Timeout ackTimeout; // Guarded by ackLock
+
+    /** Drops the console trace of sent lines, received ACKs and INFO logs, e.g. for many bots in one JVM. */
+    private static final boolean QUIET = Boolean.getBoolean("chess.net.quiet");
+
+    /** Console lines for received ACK codes, built once. */
+    private static final String[] ACK_LOG = new String[100];
+    static {
+        for (int i = 0; i < ACK_LOG.length; i++) ACK_LOG[i] = String.format("ACK RX: %02d", i);
+    }
 
     /**
-     * Constructs a new NetworkClient.
+     * Constructs a new NetworkClient on the transport selected by {@link #TRANSPORT_PROPERTY}.
      * @param listener The callback implementation for network events.
      */
     public NetworkClient(NetworkListener listener) {
+        this(listener, createTransport(), new ConnectionMetrics());
+    }
+
+    /**
+     * Constructs a new NetworkClient that counts into shared metrics.
+     * @param listener The callback implementation for network events.
+     * @param metrics Metrics to count into, e.g. kept across reconnects.
+     */
+    public NetworkClient(NetworkListener listener, ConnectionMetrics metrics) {
+        this(listener, createTransport(), metrics);
+    }
+
+    /**
+     * Constructs a new NetworkClient on the given transport.
+     * @param listener The callback implementation for network events.
+     * @param transport Unopened transport carrying the connection.
+     * @param metrics Metrics to count into.
+     */
+    public NetworkClient(NetworkListener listener, Transport transport, ConnectionMetrics metrics) {
         this.listener = listener;
+        this.transport = transport;
+        this.metrics = metrics;
+        transport.setMetrics(metrics);
+    }
+
+    /**
+     * Returns the metrics this client counts into.
+     */
+    public ConnectionMetrics metrics() {
+        return metrics;
+    }
+
+    /**
+     * Creates the transport named by the {@link #TRANSPORT_PROPERTY} system property.
+     */
+    public static Transport createTransport() {
+        if ("nio".equalsIgnoreCase(System.getProperty(TRANSPORT_PROPERTY))) {
+            try {
+                return new NioTransport();
+            } catch (IOException e) {
+                System.out.println("NIO transport unavailable, using blocking sockets: " + e.getMessage());
+            }
+        }
+        return new BlockingTransport();
     }
 
     /**
      * Initiates a connection to the specified server and performs the initial handshake.
-     * Starts background threads for protocol handling upon success.
+     * Starts the heartbeat upon success.
      *
      * @param host Server hostname or IP.
      * @param port Server port number.
@@ -82,134 +169,297 @@ public class NetworkClient {
      * @throws IOException If the connection cannot be established.
      */
     public void connect(String host, int port, String clientName, String sessionID) throws IOException {
-        socket = new Socket(host, port);
-        socket.setSoTimeout(0); 
-        
-        in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
-        out = new PrintWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8), true);
-        
-        connected = true;
+        connect(host, port, clientName, sessionID, -1);
+    }
+
+    /**
+     * Connects like {@link #connect(String, int, String, String)}, telling the server in
+     * HELLO how many plies of the game being resumed the client already has, so that it
+     * can answer with HISTORY_FROM and only the missing moves.
+     *
+     * @param knownPly Plies already on the client's board, or -1 to ask for the full HISTORY.
+     * @throws IOException If the connection cannot be established.
+     */
+    public void connect(String host, int port, String clientName, String sessionID, int knownPly) throws IOException {
+        connect(host, port, clientName, sessionID, knownPly, CONNECT_TIMEOUT);
+    }
+
+    /**
+     * Connects like {@link #connect(String, int, String, String, int)}, waiting at most the
+     * given time for the connection. {@link #closeConnection()} from another thread aborts it.
+     *
+     * @param timeoutMillis Longest time to wait for the connection; 0 waits indefinitely.
+     * @throws IOException If the connection cannot be established in time or was closed meanwhile.
+     */
+    public void connect(String host, int port, String clientName, String sessionID, int knownPly, int timeoutMillis) throws IOException {
+        connected = false;
         closed = false;
+        open = true;
+        delayedAck = false;
+        synchronized (ackLock) {
+            pendingAck = null;
+            pendingCount = 0;
+        }
         lastRxTime = System.currentTimeMillis();
+        pingSentNanos = 0;
+        moveSentNanos = 0;
+        metrics.bind(transport);
+        try {
+            transport.open(host, port, timeoutMillis, new Transport.Handler() {
+                @Override
+                public void onLine(String line) { handleLine(line); }
+
+                @Override
+                public void onPong() { handlePong(); }
+
+                @Override
+                public void onAck(int code) { handleAck(code); }
+
+                @Override
+                public void onClosed(IOException cause) { handleClosed(cause); }
+            });
+        } catch (IOException e) {
+            open = false;
+            throw e;
+        }
+        if (closed) {
+            open = false;
+            throw new IOException("Connection closed while connecting");
+        }
         
-        if (listener != null) listener.onConnected();
+        // Initiate protocol handshake immediately upon connection; HELLO goes out before anything else.
+        // sendRaw checks the flag under ackLock, so a line sent in reply to the server's answer
+        // waits for it instead of being dropped.
+        synchronized (ackLock) {
+            send("HELLO " + clientName + " " + sessionID
+                    + (knownPly >= 0 ? " " + Protocol.HELLO_PLY + knownPly : "")
+                    + (offerBinary ? " " + Protocol.CAP_BIN1 : "")
+                    + (offerDelayedAck ? " " + Protocol.CAP_DACK : ""), false);
+            connected = true;
+        }
         
-        // Initiate protocol handshake immediately upon connection
-        sendRaw("HELLO " + clientName + " " + sessionID);
+        if (listener != null) listener.onConnected();
         
-        startThreads();
+        startHeartbeat();
     }
 
     /**
-     * Initializes and starts background processing threads for the socket.
+     * Arms the first PING and the read-timeout check on the shared timer.
      */
-    private void startThreads() {
-        readerThread = new Thread(this::readLoop, "NetworkReader");
-        writerThread = new Thread(this::writeLoop, "NetworkWriter");
-        heartbeatThread = new Thread(this::heartbeatLoop, "NetworkHeartbeat");
-        
-        readerThread.start();
-        writerThread.start();
-        heartbeatThread.start();
+    private void startHeartbeat() {
+        schedulePing();
+        scheduleReadCheck(READ_TIMEOUT);
     }
 
     /**
-     * Continuously reads lines from the socket input stream.
-     * Handles ACK filtering: Protocol ACKs update the heartbeat but are not propagated
-     * to the application listener. Standard commands are ACKed and passed up.
+     * Cancels both heartbeat timeouts.
      */
-    private void readLoop() {
-        try {
-            String line;
-            while (connected && !closed && (line = in.readLine()) != null) {
-                lastRxTime = System.currentTimeMillis();
-                
-                // Handle Heartbeat PONG
-                if (line.equals(Protocol.RESP_PING)) continue; 
-                
-                // Handle Server Acknowledgements (2-digit numeric codes)
-                // We validate them here (print to console) but do not pass to UI.
-                if (line.length() == 2 && Character.isDigit(line.charAt(0)) && Character.isDigit(line.charAt(1))) {
-                    System.out.println("ACK RX: " + line);
-                    continue; 
-                }
-
-                // Handle Standard Protocol Commands
-                final String payload = line;
-                
-                // Send automated acknowledgement for the received command
-                String ack = Protocol.getAckFor(payload);
-                if (ack != null) sendRaw(ack);
-
-                try {
-                    if (listener != null) listener.onServerMessage(payload);
-                } catch (Exception ex) { 
-                    ex.printStackTrace(); 
-                }
+    private void stopHeartbeat() {
+        HashedWheelTimer.Timeout t = pingTimeout;
+        if (t != null) t.cancel();
+        t = readTimeout;
+        if (t != null) t.cancel();
+        synchronized (ackLock) {
+            if (ackTimeout != null) ackTimeout.cancel();
+            ackTimeout = null;
+            pendingAck = null;
+        }
+    }
+
+    private void schedulePing() {
+        long jitter = HEARTBEAT_INTERVAL * HEARTBEAT_JITTER_PCT / 100;
+        long delay = HEARTBEAT_INTERVAL + (jitter > 0 ? ThreadLocalRandom.current().nextLong(-jitter, jitter + 1) : 0);
+        pingTimeout = HashedWheelTimer.shared().newTimeout(this::pingTick, delay);
+    }
+
+    private void scheduleReadCheck(long delay) {
+        readTimeout = HashedWheelTimer.shared().newTimeout(this::readCheck, delay);
+    }
+
+    /**
+     * Handles a heartbeat reply: it only proves the connection is alive.
+     */
+    private void handlePong() {
+        if (!open || closed) return;
+        lastRxTime = System.currentTimeMillis();
+        metrics.messageIn();
+        long sent = pingSentNanos;
+        if (sent != 0) {
+            pingSentNanos = 0;
+            metrics.pingRtt(System.nanoTime() - sent);
+        }
+    }
+
+    /**
+     * Handles a server acknowledgement (2-digit numeric code).
+     * We validate them here (print to console) but do not pass to UI.
+     */
+    private void handleAck(int code) {
+        if (!open || closed) return;
+        lastRxTime = System.currentTimeMillis();
+        metrics.messageIn();
+        if (!QUIET) System.out.println(ACK_LOG[code]);
+    }
+
+    /**
+     * Handles one line from the transport.
+     * PNG and ACK frames arrive through handlePong and handleAck and never get here.
+     * Standard commands are classified once, ACKed, decoded into a
+     * {@link ServerMessage} and passed up to the application listener.
+     */
+    private void handleLine(String line) {
+        if (!open || closed) return;
+        lastRxTime = System.currentTimeMillis();
+        metrics.messageIn();
+
+        if (offerBinary && !binary && line.equals(Protocol.PROTO_BIN1)) {
+            // Server accepted BIN1: confirm in text, then both directions switch.
+            // All sends hold ackLock, so no other line can slip in between the two.
+            synchronized (ackLock) {
+                send(Protocol.PROTO_BIN1, false);
+                transport.enableBinary();
             }
-        } catch (IOException e) {
-            if (connected && !closed && listener != null) {
-                listener.onNetworkError(e);
+            binary = true;
+            log("INFO", "Switched to binary wire format.");
+            return;
+        }
+        if (offerDelayedAck && !delayedAck && line.equals(Protocol.PROTO_DACK)) {
+            delayedAck = true;
+            log("INFO", "Server accepted delayed ACKs.");
+            return;
+        }
+
+        String u = line.trim();
+        MessageType type = MessageType.of(u);
+        if (type == MessageType.OK_MV || type == MessageType.ERR) {
+            long sent = moveSentNanos;
+            if (sent != 0) {
+                moveSentNanos = 0;
+                if (type == MessageType.OK_MV) metrics.moveAck(System.nanoTime() - sent);
             }
-        } finally {
-            safeCloseInternal();
-            if (listener != null) listener.onDisconnected();
+        }
+        
+        // Send automated acknowledgement for the received command
+        if (delayedAck) holdAck(type.ack);
+        else send(type.ack, false);
+
+        try {
+            if (listener != null) listener.onServerMessage(ServerMessage.decode(u, type));
+        } catch (Exception ex) { 
+            ex.printStackTrace(); 
         }
     }
 
     /**
-     * Processes the outbound message queue and writes lines to the socket.
+     * Holds an ACK back for the next outbound line, replacing any ACK still
+     * pending; the first one held arms the delay timer.
      */
-    private void writeLoop() {
-        try {
-            while (connected && !closed) {
-                String msg = writeQueue.take();
-                out.println(msg);
-            }
-        } catch (InterruptedException ignored) {
-            Thread.currentThread().interrupt();
-        } catch (Exception e) {
-            log("ERROR", "Writer thread error: " + e.getMessage());
+    private void holdAck(String ack) {
+        synchronized (ackLock) {
+            pendingAck = ack;
+            pendingCount++;
+            if (ackTimeout == null) ackTimeout = HashedWheelTimer.shared().newTimeout(this::ackTick, ACK_DELAY);
         }
     }
 
     /**
-     * Monitors connection health by periodically sending PINGs and checking for read timeouts.
+     * Sends the held ACK on its own once the delay has passed without outbound traffic.
      */
-    private void heartbeatLoop() {
-        try {
-            while (connected && !closed) {
-                Thread.sleep(HEARTBEAT_INTERVAL);
-                
-                if (System.currentTimeMillis() - lastRxTime > READ_TIMEOUT) {
-                    log("WARN", "Read timeout detected. Closing connection.");
-                    break;
-                }
-                sendRaw(Protocol.CMD_PING);
-            }
-        } catch (InterruptedException ignored) {
-            Thread.currentThread().interrupt();
-        } finally {
+    private void ackTick() {
+        if (!open || closed) return;
+        synchronized (ackLock) {
+            ackTimeout = null;
+            flushAck();
+        }
+    }
+
+    /**
+     * Queues the held ACK, if any. Caller holds ackLock.
+     */
+    private void flushAck() {
+        if (pendingAck == null) return;
+        if (ackTimeout != null) {
+            ackTimeout.cancel();
+            ackTimeout = null;
+        }
+        transport.send(pendingAck);
+        metrics.messageOut();
+        if (!QUIET) System.out.println(">> " + pendingAck + (pendingCount > 1 ? " (covers " + pendingCount + ")" : ""));
+        pendingAck = null;
+        pendingCount = 0;
+    }
+
+    /**
+     * Handles the end of the connection reported by the transport.
+     */
+    private void handleClosed(IOException cause) {
+        if (cause != null && open && !closed && listener != null) {
+            listener.onNetworkError(cause);
+        }
+        safeCloseInternal();
+        if (listener != null) listener.onDisconnected();
+    }
+
+    /**
+     * Sends a PING and arms the next one while the connection is up.
+     */
+    private void pingTick() {
+        if (!connected || closed) return;
+        pingSentNanos = System.nanoTime();
+        sendRaw(Protocol.CMD_PING);
+        schedulePing();
+    }
+
+    /**
+     * Closes the connection if nothing arrived within READ_TIMEOUT, otherwise
+     * re-arms itself for the moment the timeout would expire.
+     */
+    private void readCheck() {
+        if (!connected || closed) return;
+        long idle = System.currentTimeMillis() - lastRxTime;
+        if (idle >= READ_TIMEOUT) {
+            log("WARN", "Read timeout detected. Closing connection.");
+            metrics.timeoutClose();
             safeCloseInternal();
+            return;
         }
+        scheduleReadCheck(READ_TIMEOUT - idle);
     }
 
     /**
      * Helper for formatted console logging with timestamps.
      */
     private void log(String level, String msg) {
+        if (QUIET && level.equals("INFO")) return;
         String time = LocalTime.now().format(DateTimeFormatter.ofPattern("HH:mm:ss"));
         System.out.println(String.format("[%s] [%s] %s", time, level, msg));
     }
     
     /**
      * Queues a raw string for transmission to the server.
+     * Dropped unless connected, i.e. before HELLO has been queued.
      * @param msg Protocol message line.
      */
     public void sendRaw(String msg) {
-        if (!connected || closed) return;
-        writeQueue.offer(msg);
-        if (!msg.contains(Protocol.CMD_PING)) System.out.println(">> " + msg);
+        send(msg, true);
+    }
+
+    /**
+     * Queues a line while the transport is open.
+     * @param afterHello Drop the line unless HELLO has been queued; false for the handshake and ACKs.
+     */
+    private void send(String msg, boolean afterHello) {
+        if (closed) return;
+        synchronized (ackLock) {
+            if (!open || afterHello && !connected) return;
+            // A held ACK rides in the same flush as the line that follows it
+            flushAck();
+            if (msg.startsWith(Protocol.CMD_MV)) moveSentNanos = System.nanoTime();
+            transport.send(msg);
+        }
+        metrics.messageOut();
+        metrics.queueDepth(transport.pendingWrites());
+        if (!QUIET && !msg.contains(Protocol.CMD_PING)) System.out.println(">> " + msg);
     }
 
     /**
@@ -220,31 +470,25 @@ public class NetworkClient {
         log("INFO", "Closing network connection.");
         closed = true;
         connected = false;
+        open = false;
         
-        if (heartbeatThread != null) heartbeatThread.interrupt();
-        if (readerThread != null) readerThread.interrupt();
-        if (writerThread != null) writerThread.interrupt();
-        
-        try { if (in != null) in.close(); } catch (Exception e) {}
-        try { if (out != null) out.close(); } catch (Exception e) {}
-        try { if (socket != null) socket.close(); } catch (Exception e) {}
-        
-        writeQueue.clear();
+        stopHeartbeat();
+        transport.close();
     }
     
     /**
      * Returns the current connection status of the client.
-     * @return True if connected to the server, false otherwise.
+     * @return True once connected to the server and HELLO is queued, false otherwise.
      */
     public boolean isConnected() { return connected; }
     
     /**
      * Performs an internal cleanup of socket resources without triggering event listeners.
      */
-    private synchronized void safeCloseInternal() {
+    private void safeCloseInternal() {
         connected = false;
-        try { if (in != null) in.close(); } catch (Throwable ignored) {}
-        try { if (out != null) out.close(); } catch (Throwable ignored) {}
-        try { if (socket != null) socket.close(); } catch (Throwable ignored) {}
+        open = false;
+        stopHeartbeat();
+        transport.close();
     }
 }
\ No newline at end of file
@@ -0,0 +1,116 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * NioEventLoop
+ *
+ * A single selector thread that serves every {@link NioTransport} in the
+ * JVM. All channel I/O, registration and closing happens on this thread;
+ * other threads hand work over through a task queue and wake the selector.
+ *
+ * The loop owns one direct read buffer and one direct write buffer. Only
+ * one connection is served at a time, so they are shared by all of them.
+ */
+final class NioEventLoop implements Runnable {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static NioEventLoop shared;
+
+    private final Selector selector;
+    private final Thread thread;
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private final Queue<NioTransport> flushQueue = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean wakeupPending = new AtomicBoolean(false);
+
+    final ByteBuffer readBuffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    final ByteBuffer writeBuffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+    private NioEventLoop(String name) throws IOException {
+        selector = Selector.open();
+        thread = new Thread(this, name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * The process-wide loop, started on first use.
+     */
+    static synchronized NioEventLoop shared() throws IOException {
+        if (shared == null) shared = new NioEventLoop("NetworkSelector");
+        return shared;
+    }
+
+    boolean inLoop() {
+        return Thread.currentThread() == thread;
+    }
+
+    Selector selector() {
+        return selector;
+    }
+
+    /**
+     * Runs a task on the loop thread, in submission order.
+     */
+    void execute(Runnable task) {
+        tasks.add(task);
+        if (!inLoop()) wakeup();
+    }
+
+    /**
+     * Schedules a transport's outbound queue to be written on the next loop pass.
+     */
+    void requestFlush(NioTransport transport) {
+        flushQueue.add(transport);
+        if (!inLoop()) wakeup();
+    }
+
+    private void wakeup() {
+        if (wakeupPending.compareAndSet(false, true)) selector.wakeup();
+    }
+
+    @Override
+    public void run() {
+        while (true) {
+            try {
+                selector.select();
+                wakeupPending.set(false);
+                runTasks();
+
+                Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+                while (it.hasNext()) {
+                    SelectionKey key = it.next();
+                    it.remove();
+                    NioTransport t = (NioTransport) key.attachment();
+                    if (key.isValid() && key.isConnectable()) t.onConnectable(key);
+                    if (key.isValid() && key.isReadable()) t.onReadable(readBuffer);
+                    if (key.isValid() && key.isWritable()) t.flush(writeBuffer);
+                }
+
+                // Tasks and flushes queued by the handlers above (ACKs, mostly) go out in this pass
+                runTasks();
+                NioTransport t;
+                while ((t = flushQueue.poll()) != null) t.flush(writeBuffer);
+            } catch (Throwable e) {
+                // A failure in one connection must not stop the others
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private void runTasks() {
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+}
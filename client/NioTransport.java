@@ -0,0 +1,339 @@
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.net.StandardSocketOptions;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * NioTransport
+ *
+ * Non-blocking transport: the connection's {@link SocketChannel} is
+ * registered with the shared {@link NioEventLoop}, so any number of
+ * connections costs one selector thread instead of two threads each.
+ *
+ * The connect is non-blocking too: the loop waits for OP_CONNECT and
+ * finishes it, while {@link #open} only waits for the outcome, up to its
+ * timeout. Connects to a slow or unreachable host therefore never hold up
+ * the selector thread.
+ *
+ * Inbound bytes land in the loop's shared direct buffer and are split into
+ * lines by a {@link LineFramer}; only an unfinished line is carried over in
+ * its small per-connection array. Outbound lines are queued by any thread and encoded into the
+ * loop's direct write buffer in batches. Bytes the socket does not accept
+ * are kept until it reports writable again.
+ *
+ * After {@link #enableBinary()} outbound batches are encoded as BIN1
+ * frames instead.
+ *
+ * Handler callbacks run on the selector thread and must not block.
+ */
+public class NioTransport implements Transport {
+    private static final byte LF = '\n';
+
+    private final NioEventLoop loop;
+    private SocketChannel channel;
+    private SelectionKey key;
+    private Handler handler;
+    private LineFramer framer;
+
+    // Outbound: filled by any thread, drained on the loop thread
+    private final Queue<String> outbox = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger(); // Size of outbox, which has no cheap size()
+    private final AtomicBoolean flushQueued = new AtomicBoolean(false);
+    private ConnectionMetrics metrics = new ConnectionMetrics();
+    private ByteBuffer pendingOut; // Bytes of a batch the socket did not take yet
+
+    /** Outbox marker: lines after it are encoded as BIN1 frames. Compared by identity. */
+    private static final String SWITCH_TO_BINARY = new String("PROTO BIN1 switch");
+    private BinaryCodec.Encoder encoder; // Loop thread only, null while in text mode
+    private final int writeBatchBytes;
+
+    private final AtomicBoolean closed = new AtomicBoolean(false);
+    private boolean finished = false; // Loop thread only: channel closed and handler told
+    private boolean opened = false;   // Loop thread only: connected, so the end is reported
+    private volatile CompletableFuture<Void> connecting; // Outcome open() waits for; null once settled
+
+    public NioTransport() throws IOException {
+        this(NioEventLoop.shared());
+    }
+
+    NioTransport(NioEventLoop loop) {
+        this.loop = loop;
+        this.writeBatchBytes = loop.writeBuffer.capacity();
+    }
+
+    @Override
+    public void open(String host, int port, int timeoutMillis, Handler handler) throws IOException {
+        this.handler = handler;
+        this.framer = new LineFramer(handler);
+        if (closed.get()) throw new IOException("Transport closed");
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        SocketChannel ch = SocketChannel.open();
+        try {
+            InetSocketAddress address = new InetSocketAddress(host, port);
+            if (address.isUnresolved()) throw new UnknownHostException(host);
+            ch.configureBlocking(false);
+            ch.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            channel = ch;
+            connecting = done;
+            boolean now = ch.connect(address); // Usually false: the loop finishes it on OP_CONNECT
+            loop.execute(() -> register(ch, now, done));
+            await(done, timeoutMillis);
+        } catch (IOException e) {
+            loop.execute(() -> abandon(ch, done));
+            outbox.clear();
+            queued.set(0);
+            throw e;
+        }
+    }
+
+    /**
+     * Waits for the loop to settle a connect.
+     */
+    private static void await(CompletableFuture<Void> done, int timeoutMillis) throws IOException {
+        try {
+            if (timeoutMillis > 0) done.get(timeoutMillis, TimeUnit.MILLISECONDS);
+            else done.get();
+        } catch (TimeoutException e) {
+            throw new SocketTimeoutException("Connect timed out");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof IOException ? (IOException) cause : new IOException(cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Connect interrupted");
+        }
+    }
+
+    /**
+     * Registers a channel of open(), for OP_READ if it is already connected. Loop thread only.
+     */
+    private void register(SocketChannel ch, boolean now, CompletableFuture<Void> done) {
+        if (finished || done.isDone()) return; // Closed or timed out meanwhile
+        try {
+            key = ch.register(loop.selector(), now ? SelectionKey.OP_READ : SelectionKey.OP_CONNECT, this);
+        } catch (ClosedChannelException e) {
+            settle(done, e);
+            return;
+        }
+        if (now) connected(done);
+    }
+
+    /**
+     * Finishes a pending connect once the channel reports it. Loop thread only.
+     */
+    void onConnectable(SelectionKey k) {
+        CompletableFuture<Void> done = connecting;
+        if (done == null || k.channel() != channel) return;
+        try {
+            if (!channel.finishConnect()) return;
+        } catch (IOException e) {
+            settle(done, e);
+            return;
+        }
+        k.interestOps(SelectionKey.OP_READ);
+        connected(done);
+    }
+
+    private void connected(CompletableFuture<Void> done) {
+        connecting = null;
+        opened = true;
+        if (!done.complete(null)) return; // open() gave up already; abandon() follows
+        if (!outbox.isEmpty()) flush(loop.writeBuffer);
+    }
+
+    private void settle(CompletableFuture<Void> done, IOException e) {
+        if (connecting == done) connecting = null;
+        done.completeExceptionally(e);
+    }
+
+    /**
+     * Closes the channel of a failed open() without reporting a close; the
+     * transport can be opened again. Loop thread only.
+     */
+    private void abandon(SocketChannel ch, CompletableFuture<Void> done) {
+        if (connecting == done) connecting = null;
+        if (channel == ch) opened = false;
+        SelectionKey k = ch.keyFor(loop.selector());
+        if (k != null) k.cancel();
+        if (key == k) key = null;
+        try { ch.close(); } catch (IOException ignored) {}
+    }
+
+    @Override
+    public void send(String line) {
+        if (closed.get()) return;
+        outbox.offer(line);
+        queued.incrementAndGet();
+        if (flushQueued.compareAndSet(false, true)) loop.requestFlush(this);
+    }
+
+    @Override
+    public void setMetrics(ConnectionMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public int pendingWrites() {
+        return queued.get();
+    }
+
+    @Override
+    public void enableBinary() {
+        framer.upgrade(new BinaryCodec.Decoder(handler));
+        send(SWITCH_TO_BINARY);
+    }
+
+    @Override
+    public void close() {
+        if (!closed.compareAndSet(false, true)) return;
+        if (loop.inLoop()) closeNow(null);
+        else loop.execute(() -> closeNow(null));
+    }
+
+    /**
+     * Reads what the socket has and hands every complete line to the handler. Loop thread only.
+     */
+    void onReadable(ByteBuffer buf) {
+        if (finished) return;
+        int n;
+        try {
+            buf.clear();
+            n = channel.read(buf);
+        } catch (IOException e) {
+            closeNow(closed.get() ? null : e);
+            return;
+        }
+        if (n < 0) {
+            closeNow(null);
+            return;
+        }
+        metrics.bytesIn(n);
+        buf.flip();
+        try {
+            framer.feed(buf);
+        } catch (IOException e) {
+            closeNow(e);
+        }
+    }
+
+    /**
+     * Writes queued lines through the shared direct buffer. Loop thread only.
+     */
+    void flush(ByteBuffer buf) {
+        flushQueued.set(false);
+        if (finished || key == null || connecting != null) return; // Flushed once connected
+        try {
+            if (pendingOut != null) {
+                if (!write(pendingOut)) return;
+                pendingOut = null;
+            }
+            while (!outbox.isEmpty()) {
+                if (encoder != null) {
+                    if (!write(encodeBinary())) return;
+                    continue;
+                }
+                buf.clear();
+                String s;
+                while ((s = outbox.peek()) != null) {
+                    if (s == SWITCH_TO_BINARY) {
+                        if (buf.position() > 0) break; // Text before the switch goes out first
+                        poll();
+                        encoder = new BinaryCodec.Encoder();
+                        break;
+                    }
+                    byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+                    if (bytes.length + 1 > buf.remaining()) {
+                        if (buf.position() > 0) break;
+                        // Longer than the whole buffer: send it on its own from the heap
+                        poll();
+                        ByteBuffer big = ByteBuffer.allocate(bytes.length + 1);
+                        big.put(bytes).put(LF).flip();
+                        if (!write(big)) return;
+                        continue;
+                    }
+                    poll();
+                    buf.put(bytes).put(LF);
+                }
+                buf.flip();
+                if (!write(buf)) return;
+            }
+            setWriteInterest(false);
+        } catch (IOException e) {
+            closeNow(e);
+        }
+    }
+
+    /**
+     * Encodes queued lines as one batch of BIN1 frames, up to about one buffer's worth.
+     */
+    private ByteBuffer encodeBinary() {
+        encoder.reset();
+        String s;
+        while (encoder.size() < writeBatchBytes && (s = poll()) != null) encoder.encode(s);
+        encoder.finish();
+        return ByteBuffer.wrap(encoder.array(), 0, encoder.size());
+    }
+
+    private String poll() {
+        String s = outbox.poll();
+        if (s != null) queued.decrementAndGet();
+        return s;
+    }
+
+    /**
+     * Writes as much as the socket accepts. The rest is copied to pendingOut and
+     * OP_WRITE is requested; returns false in that case.
+     */
+    private boolean write(ByteBuffer buf) throws IOException {
+        metrics.bytesOut(channel.write(buf));
+        if (!buf.hasRemaining()) return true;
+        if (buf != pendingOut) {
+            ByteBuffer rest = ByteBuffer.allocate(buf.remaining());
+            rest.put(buf).flip();
+            pendingOut = rest;
+        }
+        setWriteInterest(true);
+        return false;
+    }
+
+    private void setWriteInterest(boolean on) {
+        int ops = on ? (SelectionKey.OP_READ | SelectionKey.OP_WRITE) : SelectionKey.OP_READ;
+        if (key.isValid() && key.interestOps() != ops) key.interestOps(ops);
+    }
+
+    /**
+     * Closes the channel and reports the end to the handler, once. Loop thread only.
+     */
+    private void closeNow(IOException cause) {
+        if (finished) return;
+        finished = true;
+        closed.set(true);
+        if (key != null) key.cancel();
+        if (channel != null) {
+            try { channel.close(); } catch (IOException ignored) {}
+        }
+        outbox.clear();
+        queued.set(0);
+        pendingOut = null;
+        CompletableFuture<Void> done = connecting;
+        if (done != null) settle(done, new IOException("Transport closed"));
+        if (!opened) return; // open() reports the failure instead
+        framer.close();
+        handler.onClosed(cause);
+    }
+}
@@ -0,0 +1,122 @@
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * ParallelSearch
+ *
+ * Lazy SMP: the main {@link SearchEngine} runs on the calling thread while
+ * helper engines search the same position on pool threads, all sharing one
+ * {@link TranspositionTable}. Helpers skip different depths, so they fill
+ * the table with results the main search picks up for move ordering and
+ * cutoffs. Only the main search's move is reported; helper nodes are added
+ * to the node count.
+ */
+public final class ParallelSearch {
+    /** Default thread count, overridable with -Dchess.engine.threads=N */
+    public static final int DEFAULT_THREADS =
+            Math.max(1, Integer.getInteger("chess.engine.threads", Runtime.getRuntime().availableProcessors()));
+
+    private final TranspositionTable tt;
+    private final SearchEngine main;
+    private final SearchEngine[] helpers;
+    private final ExecutorService pool;
+
+    /**
+     * @param threads Total number of search threads, including the caller's.
+     */
+    public ParallelSearch(int threads, TranspositionTable tt) {
+        this.tt = tt;
+        this.main = new SearchEngine(tt, 0);
+        this.helpers = new SearchEngine[Math.max(0, threads - 1)];
+        for (int i = 0; i < helpers.length; i++) helpers[i] = new SearchEngine(tt, i + 1);
+
+        final AtomicInteger seq = new AtomicInteger();
+        this.pool = helpers.length == 0 ? null : Executors.newFixedThreadPool(helpers.length, r -> {
+            Thread t = new Thread(r, "EngineHelper-" + seq.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public ParallelSearch(int threads) {
+        this(threads, new TranspositionTable());
+    }
+
+    public ParallelSearch() {
+        this(DEFAULT_THREADS);
+    }
+
+    public int threads() {
+        return helpers.length + 1;
+    }
+
+    public TranspositionTable getTranspositionTable() {
+        return tt;
+    }
+
+    /**
+     * Searches on the calling thread with all helpers running alongside.
+     *
+     * @see SearchEngine#search(BitboardPosition, int, long)
+     */
+    public SearchResult search(BitboardPosition root, int maxDepth, long timeMillis) {
+        long start = System.nanoTime();
+        tt.newSearch();
+        main.prepare();
+        Future<?>[] running = new Future<?>[helpers.length];
+        SearchResult[] helperResults = new SearchResult[helpers.length];
+        for (int i = 0; i < helpers.length; i++) {
+            final SearchEngine h = helpers[i];
+            final int slot = i;
+            h.prepare();
+            running[i] = pool.submit(() -> {
+                helperResults[slot] = h.iterate(root, SearchEngine.MAX_PLY - 1, 0);
+            });
+        }
+
+        SearchResult result;
+        try {
+            result = main.iterate(root, maxDepth, timeMillis);
+        } finally {
+            for (SearchEngine h : helpers) h.stop();
+        }
+
+        // Helpers are stopped and finish within a few thousand nodes. Wait for them even when
+        // interrupted, otherwise the next search could start an engine that is still running.
+        long nodes = result.nodes;
+        boolean interrupted = false;
+        for (int i = 0; i < running.length; i++) {
+            while (true) {
+                try {
+                    running[i].get();
+                    nodes += helperResults[i].nodes;
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    e.printStackTrace();
+                    break;
+                }
+            }
+        }
+        if (interrupted) Thread.currentThread().interrupt();
+        long elapsed = (System.nanoTime() - start) / 1_000_000L;
+        return new SearchResult(result.bestMove, result.score, result.depth, nodes, elapsed);
+    }
+
+    /**
+     * Stops the main search and all helpers. Safe to call from any thread.
+     */
+    public void stop() {
+        main.stop();
+        for (SearchEngine h : helpers) h.stop();
+    }
+
+    public void shutdown() {
+        stop();
+        if (pool != null) pool.shutdownNow();
+    }
+}
@@ -0,0 +1,112 @@
+/**
+ * Perft
+ *
+ * Counts the leaf nodes of the legal move tree to a fixed depth. The counts
+ * for the standard test positions are well known, which makes perft the
+ * correctness oracle for {@link MoveGenerator}; the elapsed time gives a
+ * move generation throughput figure.
+ *
+ * Usage:
+ *   java Perft                      run the standard suite
+ *   java Perft [maxDepth]           run the suite, capping every position at maxDepth
+ *   java Perft "&lt;fen&gt;" depth       count a single position
+ */
+public final class Perft {
+    public static final String START_FEN = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+    /** Standard positions with their node counts for depth 1, 2, 3, ... */
+    private static final Object[][] SUITE = {
+        { "Start position", START_FEN,
+          new long[]{ 20, 400, 8902, 197281, 4865609 } },
+        { "Kiwipete", "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+          new long[]{ 48, 2039, 97862, 4085603 } },
+        { "Position 3", "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+          new long[]{ 14, 191, 2812, 43238, 674624 } },
+        { "Position 4", "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+          new long[]{ 6, 264, 9467, 422333 } },
+        { "Position 5", "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8",
+          new long[]{ 44, 1486, 62379, 2103487 } },
+        { "Position 6", "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10",
+          new long[]{ 46, 2079, 89890, 3894594 } },
+    };
+
+    private final BitboardPosition pos = new BitboardPosition();
+    private final int[][] moveLists;
+
+    private Perft(int depth) {
+        moveLists = new int[depth + 1][MoveGenerator.MAX_MOVES];
+    }
+
+    /**
+     * Counts leaf nodes reachable from the given position in exactly {@code depth} plies.
+     * The position itself is not modified.
+     */
+    public static long perft(BitboardPosition root, int depth) {
+        if (depth <= 0) return 1;
+        Perft p = new Perft(depth);
+        p.pos.copyFrom(root);
+        return p.count(0, depth);
+    }
+
+    private long count(int ply, int depth) {
+        int[] moves = moveLists[ply];
+        int n = MoveGenerator.generateLegal(pos, moves);
+        if (depth == 1) return n;
+        long nodes = 0;
+        for (int i = 0; i < n; i++) {
+            pos.makeMove(moves[i]);
+            nodes += count(ply + 1, depth - 1);
+            pos.unmakeMove(moves[i]);
+        }
+        return nodes;
+    }
+
+    public static void main(String[] args) {
+        if (args.length >= 2) {
+            BitboardPosition pos = new BitboardPosition();
+            pos.setFen(args[0]);
+            int depth = Integer.parseInt(args[1]);
+            report(args[0], depth, pos);
+            return;
+        }
+
+        int maxDepth = (args.length == 1) ? Integer.parseInt(args[0]) : Integer.MAX_VALUE;
+        boolean ok = true;
+        long totalNodes = 0, totalNanos = 0;
+        for (Object[] entry : SUITE) {
+            String name = (String) entry[0];
+            long[] expected = (long[]) entry[2];
+            BitboardPosition pos = new BitboardPosition();
+            pos.setFen((String) entry[1]);
+            for (int d = 1; d <= expected.length && d <= maxDepth; d++) {
+                long t0 = System.nanoTime();
+                long nodes = perft(pos, d);
+                long nanos = System.nanoTime() - t0;
+                totalNodes += nodes;
+                totalNanos += nanos;
+                boolean pass = nodes == expected[d - 1];
+                ok &= pass;
+                System.out.println(String.format("%-15s depth %d  %,12d nodes  %8.1f ms  %,12d nps  %s",
+                        name, d, nodes, nanos / 1e6, nps(nodes, nanos),
+                        pass ? "OK" : "FAIL (expected " + expected[d - 1] + ")"));
+            }
+        }
+        System.out.println(String.format("Total %,d nodes in %.1f ms, %,d nps", totalNodes, totalNanos / 1e6, nps(totalNodes, totalNanos)));
+        if (!ok) {
+            System.out.println("Perft suite FAILED");
+            System.exit(1);
+        }
+        System.out.println("Perft suite passed");
+    }
+
+    private static void report(String name, int depth, BitboardPosition pos) {
+        long t0 = System.nanoTime();
+        long nodes = perft(pos, depth);
+        long nanos = System.nanoTime() - t0;
+        System.out.println(String.format("%s depth %d: %,d nodes, %.1f ms, %,d nps", name, depth, nodes, nanos / 1e6, nps(nodes, nanos)));
+    }
+
+    private static long nps(long nodes, long nanos) {
+        return (nanos == 0) ? 0 : nodes * 1_000_000_000L / nanos;
+    }
+}
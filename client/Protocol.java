@@ -18,12 +18,26 @@ public class Protocol {
     public static final String CMD_JOIN = "JOIN";
     public static final String CMD_NEW = "NEW";
     public static final String CMD_PING = "PING";
+    /** HELLO token "PLY=n" on reconnect: plies of the game the client already has. */
+    public static final String HELLO_PLY = "PLY=";
+
+    // --- Wire Format Negotiation ---
+    /** HELLO capability token asking for the binary wire format (see BinaryCodec). */
+    public static final String CAP_BIN1 = "+BIN1";
+    /** "PROTO BIN1": sent by the server to accept, then echoed by the client, before switching. */
+    public static final String PROTO_BIN1 = "PROTO BIN1";
+    /** HELLO capability token asking for cumulative, delayed ACKs. */
+    public static final String CAP_DACK = "+DACK";
+    /** "PROTO DACK": sent by the server to accept; one ACK then covers every message before it. */
+    public static final String PROTO_DACK = "PROTO DACK";
 
     // --- Server Responses ---
     public static final String RESP_WELCOME = "WELCOME";
     public static final String RESP_RESUME = "RESUME";
     public static final String RESP_OPP_RESUME = "OPP_RESUME";
     public static final String RESP_HISTORY = "HISTORY";
+    /** "HISTORY_FROM n m1 m2 ...": the moves after ply n, answering HELLO with PLY=n. */
+    public static final String RESP_HISTORY_FROM = "HISTORY_FROM";
     public static final String RESP_TIME = "TIME";
     public static final String RESP_WAIT_CONN = "WAIT_CONN";
     public static final String RESP_LOBBY = "LOBBY";
@@ -36,6 +50,7 @@ public class Protocol {
     public static final String RESP_ERR = "ERR";
     public static final String RESP_FULL = "FULL";
     public static final String RESP_PING = "PNG";
+    public static final String RESP_OPP_KICK = "OPP_KICK";
 
     
     // --- End Game Conditions ---
@@ -90,30 +105,25 @@ public class Protocol {
      * @return The 2-digit ACK code string.
      */
     public static String getAckFor(String msg) {
-        if (msg == null || msg.isEmpty()) return ACK_GENERIC;
+        // Leading token lookup; see MessageType for the code of each message
+        return MessageType.of(msg).ack;
+    }
 
-        // Match server commands to specific ACKs
-        if (msg.startsWith(RESP_WAITING))    return ACK_WAIT;
-        if (msg.startsWith(RESP_START))      return ACK_START;
-        if (msg.startsWith(RESP_OK_MV))      return ACK_ACCEPT_MOVE;
-        if (msg.startsWith(RESP_OPP_MV))     return ACK_OPP_MOVE;
-        if (msg.equals(RESP_CHK))               return ACK_CHECK;
-        if (msg.startsWith(RESP_WIN_CHKM))   return ACK_WIN_BY_CHKM;
-        if (msg.startsWith(RESP_CHKM))       return ACK_LOST_BY_CHKM;
-        if (msg.startsWith(RESP_SM))         return ACK_STALEMATE;
-        if (msg.startsWith(RESP_DRW_OFF))    return ACK_DRW_OFF_SC;
-        if (msg.startsWith(RESP_DRW_ACD))    return ACK_DRW_ACC;
-        if (msg.startsWith(RESP_DRW_DCD))    return ACK_DRW_DEC;
-        if (msg.startsWith(RESP_RES))        return ACK_RESIGN_SC;
-        if (msg.startsWith(RESP_OPP_RES))    return ACK_OPP_RESIGN;
-        if (msg.startsWith(RESP_TOUT))       return ACK_TOUT;
-        if (msg.startsWith(RESP_OPP_TOUT))   return ACK_OPP_TOUT;
-        if (msg.startsWith(RESP_OPP_EXT))    return ACK_OPP_QUIT;
-        if (msg.startsWith(RESP_RESUME))     return ACK_RESUME;
-        if (msg.startsWith(RESP_LOBBY))      return ACK_LOBBY;
-        if (msg.startsWith(RESP_ERR))        return ACK_ERR;
-        
-        // For commands without specific ACKs (e.g. ROOMLIST, TIME, HISTORY), return Generic
-        return ACK_GENERIC;
+    /**
+     * Returns a whitespace-separated field of a message without using a regex.
+     * @param msg The message.
+     * @param index Zero-based field index; 0 is the leading token.
+     * @return The field, or null if the message has fewer fields.
+     */
+    public static String field(String msg, int index) {
+        int n = msg.length();
+        int i = 0;
+        for (int f = 0; ; f++) {
+            while (i < n && msg.charAt(i) <= ' ') i++;
+            if (i == n) return null;
+            int start = i;
+            while (i < n && msg.charAt(i) > ' ') i++;
+            if (f == index) return msg.substring(start, i);
+        }
     }
-}
\ No newline at end of file
+}
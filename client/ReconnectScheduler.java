@@ -0,0 +1,189 @@
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ReconnectScheduler
+ *
+ * Paces the attempts to get a lost connection back. The first attempt goes
+ * out at once, since most drops are momentary. After that the waits grow
+ * exponentially with decorrelated jitter: each wait is drawn between the
+ * base delay and three times the previous wait, up to a cap. Clients that a
+ * server restart dropped together therefore spread out instead of all
+ * knocking again at the same instant. Attempts stop when one succeeds, when
+ * the total deadline has passed, or on {@link #cancel()}. Each attempt may
+ * take no longer to connect than the time left before the deadline, and
+ * cancelling aborts an attempt that is still connecting.
+ *
+ * One scheduler serves all reconnects of a client. A reconnect that starts
+ * soon after the previous one succeeded skips the immediate attempt and
+ * keeps backing off from where it left off, so a server that accepts and
+ * then drops straight away is not hammered. The attempts of one reconnect
+ * run one after another on a single thread.
+ *
+ * Delays are configurable through chess.net.reconnectBaseMs,
+ * chess.net.reconnectMaxMs, chess.net.reconnectDeadlineMs,
+ * chess.net.reconnectStableMs and chess.net.reconnectAttemptMs.
+ */
+final class ReconnectScheduler {
+    static final long BASE_DELAY = Long.getLong("chess.net.reconnectBaseMs", 250);
+    static final long MAX_DELAY = Long.getLong("chess.net.reconnectMaxMs", 8000);
+    /** As long as the C server holds a dropped player's seat. */
+    static final long DEADLINE = Long.getLong("chess.net.reconnectDeadlineMs", 60000);
+    /** A connection that lasted this long counts as recovered; the next drop starts afresh. */
+    static final long STABLE = Long.getLong("chess.net.reconnectStableMs", 10000);
+    /** Longest a single attempt may wait for its connection. */
+    static final long ATTEMPT_TIMEOUT = Long.getLong("chess.net.reconnectAttemptMs", 10000);
+
+    /**
+     * One connection attempt; returns normally once connected.
+     */
+    interface Attempt {
+        /**
+         * @param timeoutMillis Longest time to wait for the connection, at least 1.
+         */
+        void connect(int timeoutMillis) throws IOException;
+
+        /**
+         * Makes a {@link #connect} in progress fail at once. Called from {@link #cancel()}
+         * on another thread, possibly when no connect is in progress.
+         */
+        default void abort() {}
+    }
+
+    /**
+     * Progress of a reconnect. Called on the reconnect thread.
+     */
+    interface Listener {
+        /**
+         * Called before each attempt.
+         * @param n Number of the attempt within this reconnect, from 1.
+         */
+        void onAttempt(int n);
+
+        void onReconnected(int attempts);
+
+        /**
+         * The deadline passed without a successful attempt.
+         * @param last The error of the final attempt, or null if none was made.
+         */
+        void onGaveUp(int attempts, IOException last);
+    }
+
+    private final Object lock = new Object();
+    private boolean running = false;   // Guarded by lock
+    private boolean cancelled = false; // Guarded by lock
+    private Attempt current;           // Attempt of the running reconnect; guarded by lock
+
+    // Reconnect thread only; successive threads are ordered by lock
+    private long lastDelay = 0;   // Last backoff wait, 0 before the first
+    private long lastSuccess = 0; // System.nanoTime() of the last successful attempt, 0 if none
+
+    /**
+     * Starts reconnecting on a new thread, unless a reconnect is already running.
+     * @return False if one was already running.
+     */
+    boolean start(Attempt attempt, Listener listener) {
+        synchronized (lock) {
+            if (running) return false;
+            running = true;
+            cancelled = false;
+            current = attempt;
+        }
+        ThreadSupport.start("NetworkReconnect", () -> run(attempt, listener));
+        return true;
+    }
+
+    /**
+     * Stops the running reconnect: an attempt still connecting is aborted, no further
+     * attempts are made and nothing more is reported, except by an attempt that
+     * connected just before, which still reports its outcome.
+     */
+    void cancel() {
+        Attempt attempt;
+        synchronized (lock) {
+            if (running) cancelled = true;
+            attempt = current;
+            lock.notifyAll();
+        }
+        if (attempt != null) attempt.abort();
+    }
+
+    private void run(Attempt attempt, Listener listener) {
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(DEADLINE);
+        boolean fastPath = lastSuccess == 0 || start - lastSuccess > TimeUnit.MILLISECONDS.toNanos(STABLE);
+        if (fastPath) lastDelay = 0;
+
+        IOException last = null;
+        for (int n = 1; ; n++) {
+            long left = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            if (left > 0 && (n > 1 || !fastPath)) {
+                if (!pause(Math.min(nextDelay(), left))) {
+                    finish();
+                    return;
+                }
+                left = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            }
+            if (left <= 0) {
+                finish();
+                listener.onGaveUp(n - 1, last);
+                return;
+            }
+            synchronized (lock) {
+                if (cancelled) {
+                    running = false;
+                    current = null;
+                    return;
+                }
+            }
+            listener.onAttempt(n);
+            try {
+                attempt.connect((int) Math.min(left, ATTEMPT_TIMEOUT));
+                lastSuccess = System.nanoTime();
+                finish();
+                listener.onReconnected(n);
+                return;
+            } catch (IOException e) {
+                last = e;
+            }
+        }
+    }
+
+    /**
+     * Decorrelated jitter: uniformly between the base delay and three times the last wait.
+     */
+    private long nextDelay() {
+        long prev = Math.max(BASE_DELAY, lastDelay);
+        long d = Math.min(MAX_DELAY, ThreadLocalRandom.current().nextLong(BASE_DELAY, prev * 3 + 1));
+        lastDelay = d;
+        return d;
+    }
+
+    /**
+     * Waits the given time unless cancelled.
+     * @return False if cancelled (or interrupted) meanwhile.
+     */
+    private boolean pause(long millis) {
+        long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+        synchronized (lock) {
+            try {
+                long left;
+                while (!cancelled && (left = TimeUnit.NANOSECONDS.toMillis(end - System.nanoTime())) > 0) {
+                    lock.wait(left);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+            return !cancelled;
+        }
+    }
+
+    private void finish() {
+        synchronized (lock) {
+            running = false;
+            current = null;
+        }
+    }
+}
@@ -0,0 +1,344 @@
+/**
+ * SearchEngine
+ *
+ * Negamax alpha-beta search over a {@link BitboardPosition}, driven by
+ * iterative deepening under a depth and time budget. Leaves are resolved
+ * with a capture-only quiescence search.
+ *
+ * Move ordering: the best move of the previous iteration first, then
+ * captures by MVV-LVA (most valuable victim, least valuable attacker), then
+ * two killer moves per ply, then quiet moves by history score. The move
+ * stored in the {@link TranspositionTable} goes before all of them, and
+ * stored bounds that are deep enough cut the node off without searching it.
+ *
+ * A search runs on the calling thread and works on its own copy of the
+ * position. {@link #stop()} may be called from any thread, as may
+ * interrupting the searching thread; the search then returns the best move
+ * of the last completed iteration. Several engines can search the same
+ * position in parallel over a shared table, see {@link ParallelSearch}.
+ */
+public class SearchEngine {
+    public static final int INFINITE = 32000;
+    public static final int MATE = 31000;
+    public static final int MAX_PLY = 128;
+
+    private static final int NODE_CHECK_MASK = 2047; // Poll the clock every 2048 nodes
+    private static final int SCORE_PV = 1_000_000;
+    private static final int SCORE_CAPTURE = 100_000;
+    private static final int SCORE_KILLER_1 = 90_000;
+    private static final int SCORE_KILLER_2 = 80_000;
+    private static final int HISTORY_LIMIT = 60_000;
+
+    // Lazy SMP depth staggering: helper i skips blocks of SKIP_SIZE depths, offset by SKIP_PHASE
+    private static final int[] SKIP_SIZE  = { 1, 1, 2, 2, 2, 2, 3, 3, 3, 3, 3, 3, 4, 4, 4, 4, 4, 4, 4, 4 };
+    private static final int[] SKIP_PHASE = { 0, 1, 0, 1, 2, 3, 0, 1, 2, 3, 4, 5, 0, 1, 2, 3, 4, 5, 6, 7 };
+
+    private final TranspositionTable tt;
+    private final int helperIndex;
+    private final BitboardPosition pos = new BitboardPosition();
+    private final int[][] moves = new int[MAX_PLY][MoveGenerator.MAX_MOVES];
+    private final int[][] moveScores = new int[MAX_PLY][MoveGenerator.MAX_MOVES];
+    private final int[][] killers = new int[MAX_PLY][2];
+    private final int[][] history = new int[12][64];
+    private final long[] pathHashes = new long[MAX_PLY + 1];
+
+    private volatile boolean stopRequested = false;
+    private boolean aborted;
+    private long deadline;
+    private long nodes;
+    private int rootBest;
+
+    public SearchEngine(TranspositionTable tt) {
+        this(tt, 0);
+    }
+
+    /**
+     * @param helperIndex 0 for a main search; 1..N for Lazy SMP helpers, which skip some depths.
+     */
+    SearchEngine(TranspositionTable tt, int helperIndex) {
+        this.tt = tt;
+        this.helperIndex = helperIndex;
+    }
+
+    public SearchEngine() {
+        this(new TranspositionTable());
+    }
+
+    public TranspositionTable getTranspositionTable() {
+        return tt;
+    }
+
+    /**
+     * Searches the given position for the side to move.
+     *
+     * @param root Position to analyse; it is copied and never modified.
+     * @param maxDepth Iteration limit in plies.
+     * @param timeMillis Time budget in milliseconds, or 0 for no limit.
+     * @return The best move of the deepest completed iteration.
+     */
+    public SearchResult search(BitboardPosition root, int maxDepth, long timeMillis) {
+        prepare();
+        tt.newSearch();
+        return iterate(root, maxDepth, timeMillis);
+    }
+
+    /**
+     * Clears a previous stop request. Done before the search is handed to
+     * another thread so that a stop issued in between is not lost.
+     */
+    void prepare() {
+        stopRequested = false;
+    }
+
+    /**
+     * Iterative deepening loop behind {@link #search}; does not reset the stop flag or age the table.
+     */
+    SearchResult iterate(BitboardPosition root, int maxDepth, long timeMillis) {
+        long start = System.nanoTime();
+        aborted = false;
+        deadline = (timeMillis > 0) ? start + timeMillis * 1_000_000L : 0;
+        nodes = 0;
+        pos.copyFrom(root);
+        pathHashes[0] = pos.hash();
+        for (int[] k : killers) k[0] = k[1] = Move.NONE;
+        for (int[] h : history) java.util.Arrays.fill(h, 0);
+
+        int n = MoveGenerator.generateLegal(pos, moves[0]);
+        if (n == 0) {
+            int score = pos.inCheck(pos.sideToMove()) ? -MATE : 0;
+            return new SearchResult(Move.NONE, score, 0, 0, 0);
+        }
+
+        int bestMove = moves[0][0];
+        int bestScore = 0;
+        int completed = 0;
+        if (maxDepth > MAX_PLY - 1) maxDepth = MAX_PLY - 1;
+        for (int depth = 1; depth <= maxDepth; depth++) {
+            if (helperIndex > 0 && depth > 1) {
+                int i = (helperIndex - 1) % SKIP_SIZE.length;
+                if (((depth + SKIP_PHASE[i]) / SKIP_SIZE[i]) % 2 != 0) continue;
+            }
+            rootBest = bestMove;
+            int score = searchRoot(depth, bestMove);
+            if (aborted) break;
+            bestMove = rootBest;
+            bestScore = score;
+            completed = depth;
+            if (Math.abs(score) >= MATE - MAX_PLY) break;
+            // Another iteration usually costs more than all previous ones together
+            if (deadline != 0 && System.nanoTime() - start > (deadline - start) / 2) break;
+        }
+        long elapsed = (System.nanoTime() - start) / 1_000_000L;
+        return new SearchResult(bestMove, bestScore, completed, nodes, elapsed);
+    }
+
+    /**
+     * Asks a running search to finish as soon as possible. Safe to call from any thread.
+     */
+    public void stop() {
+        stopRequested = true;
+    }
+
+    private int searchRoot(int depth, int pvMove) {
+        int[] list = moves[0];
+        int n = MoveGenerator.generateLegal(pos, list);
+        scoreMoves(0, n, pvMove);
+        int alpha = -INFINITE;
+        for (int i = 0; i < n; i++) {
+            int m = pickNext(0, i, n);
+            pos.makeMove(m);
+            pathHashes[1] = pos.hash();
+            int score = -search(depth - 1, -INFINITE, -alpha, 1);
+            pos.unmakeMove(m);
+            if (aborted) return alpha;
+            if (score > alpha) {
+                alpha = score;
+                rootBest = m;
+            }
+        }
+        tt.store(pos.hash(), rootBest, alpha, depth, TranspositionTable.BOUND_EXACT);
+        return alpha;
+    }
+
+    private int search(int depth, int alpha, int beta, int ply) {
+        if (depth <= 0) return quiesce(alpha, beta, ply);
+        if ((++nodes & NODE_CHECK_MASK) == 0) checkTime();
+        if (aborted) return 0;
+        if (isRepetition(ply)) return 0;
+        if (ply >= MAX_PLY - 1) return Evaluator.evaluate(pos);
+
+        long key = pos.hash();
+        long entry = tt.probe(key);
+        int ttMove = Move.NONE;
+        if (entry != 0) {
+            ttMove = TranspositionTable.move(entry);
+            if (TranspositionTable.depth(entry) >= depth) {
+                int score = fromTT(TranspositionTable.score(entry), ply);
+                int bound = TranspositionTable.bound(entry);
+                if (bound == TranspositionTable.BOUND_EXACT
+                        || (bound == TranspositionTable.BOUND_LOWER && score >= beta)
+                        || (bound == TranspositionTable.BOUND_UPPER && score <= alpha)) {
+                    return score;
+                }
+            }
+        }
+
+        int origDepth = depth;
+        int origAlpha = alpha;
+        int side = pos.sideToMove();
+        boolean inCheck = pos.inCheck(side);
+        if (inCheck) depth++;
+
+        int[] list = moves[ply];
+        int n = MoveGenerator.generateLegal(pos, side, list);
+        if (n == 0) return inCheck ? -MATE + ply : 0;
+        scoreMoves(ply, n, ttMove);
+
+        int best = -INFINITE;
+        int bestMove = Move.NONE;
+        for (int i = 0; i < n; i++) {
+            int m = pickNext(ply, i, n);
+            pos.makeMove(m);
+            pathHashes[ply + 1] = pos.hash();
+            int score = -search(depth - 1, -beta, -alpha, ply + 1);
+            pos.unmakeMove(m);
+            if (aborted) return 0;
+            if (score > best) {
+                best = score;
+                if (score > alpha) {
+                    alpha = score;
+                    bestMove = m;
+                    if (score >= beta) {
+                        if (!Move.isCapture(m) && Move.promo(m) == 0) recordCutoff(ply, m, depth);
+                        break;
+                    }
+                }
+            }
+        }
+        int bound = (best >= beta) ? TranspositionTable.BOUND_LOWER
+                  : (best > origAlpha) ? TranspositionTable.BOUND_EXACT
+                  : TranspositionTable.BOUND_UPPER;
+        tt.store(key, bestMove, toTT(best, ply), origDepth, bound);
+        return best;
+    }
+
+    private int quiesce(int alpha, int beta, int ply) {
+        if ((++nodes & NODE_CHECK_MASK) == 0) checkTime();
+        if (aborted) return 0;
+        int standPat = Evaluator.evaluate(pos);
+        if (ply >= MAX_PLY - 1 || standPat >= beta) return standPat;
+        if (standPat > alpha) alpha = standPat;
+
+        int side = pos.sideToMove();
+        int[] list = moves[ply];
+        int n = MoveGenerator.generatePseudoLegal(pos, side, list);
+        int k = 0;
+        for (int i = 0; i < n; i++) {
+            int m = list[i];
+            boolean tactical = Move.isCapture(m) || Move.promo(m) == BitboardPosition.QUEEN;
+            if (tactical && MoveGenerator.isLegal(pos, side, m)) list[k++] = m;
+        }
+        scoreMoves(ply, k, Move.NONE);
+
+        int best = standPat;
+        for (int i = 0; i < k; i++) {
+            int m = pickNext(ply, i, k);
+            pos.makeMove(m);
+            int score = -quiesce(-beta, -alpha, ply + 1);
+            pos.unmakeMove(m);
+            if (aborted) return 0;
+            if (score > best) {
+                best = score;
+                if (score > alpha) {
+                    alpha = score;
+                    if (score >= beta) break;
+                }
+            }
+        }
+        return best;
+    }
+
+    /** Mate scores are stored as distance from the stored node, not from the root. */
+    private static int toTT(int score, int ply) {
+        if (score >= MATE - MAX_PLY) return score + ply;
+        if (score <= -MATE + MAX_PLY) return score - ply;
+        return score;
+    }
+
+    private static int fromTT(int score, int ply) {
+        if (score >= MATE - MAX_PLY) return score - ply;
+        if (score <= -MATE + MAX_PLY) return score + ply;
+        return score;
+    }
+
+    private void checkTime() {
+        if (stopRequested || Thread.currentThread().isInterrupted()
+                || (deadline != 0 && System.nanoTime() > deadline)) {
+            aborted = true;
+        }
+    }
+
+    /** True if the position at this ply already occurred on the current search path. */
+    private boolean isRepetition(int ply) {
+        long h = pathHashes[ply];
+        for (int i = ply - 2; i >= 0; i -= 2) {
+            if (pathHashes[i] == h) return true;
+        }
+        return false;
+    }
+
+    private void scoreMoves(int ply, int n, int pvMove) {
+        int[] list = moves[ply];
+        int[] scores = moveScores[ply];
+        int k1 = killers[ply][0], k2 = killers[ply][1];
+        for (int i = 0; i < n; i++) {
+            int m = list[i];
+            int from = Move.from(m), to = Move.to(m);
+            int mover = pos.mailbox[from];
+            if (m == pvMove) {
+                scores[i] = SCORE_PV;
+            } else if (Move.isCapture(m)) {
+                int victim = ((m & Move.FLAG_EN_PASSANT) != 0) ? BitboardPosition.PAWN
+                                                                : BitboardPosition.typeOf(pos.mailbox[to]);
+                scores[i] = SCORE_CAPTURE + Evaluator.PIECE_VALUE[victim] * 10 - BitboardPosition.typeOf(mover);
+            } else if (Move.promo(m) != 0) {
+                scores[i] = SCORE_CAPTURE + Evaluator.PIECE_VALUE[Move.promo(m)];
+            } else if (m == k1) {
+                scores[i] = SCORE_KILLER_1;
+            } else if (m == k2) {
+                scores[i] = SCORE_KILLER_2;
+            } else {
+                scores[i] = history[mover][to];
+            }
+        }
+    }
+
+    /** Selection sort step: moves the best remaining move to index i and returns it. */
+    private int pickNext(int ply, int i, int n) {
+        int[] list = moves[ply];
+        int[] scores = moveScores[ply];
+        int best = i;
+        for (int j = i + 1; j < n; j++) {
+            if (scores[j] > scores[best]) best = j;
+        }
+        int m = list[best];
+        list[best] = list[i]; list[i] = m;
+        int s = scores[best];
+        scores[best] = scores[i]; scores[i] = s;
+        return m;
+    }
+
+    /** Updates killer and history tables after a quiet move caused a beta cutoff. */
+    private void recordCutoff(int ply, int m, int depth) {
+        if (killers[ply][0] != m) {
+            killers[ply][1] = killers[ply][0];
+            killers[ply][0] = m;
+        }
+        int[] h = history[pos.mailbox[Move.from(m)]];
+        int to = Move.to(m);
+        h[to] += depth * depth;
+        if (h[to] > HISTORY_LIMIT) {
+            for (int[] row : history) for (int sq = 0; sq < 64; sq++) row[sq] >>= 1;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+/**
+ * SearchResult
+ *
+ * Immutable outcome of a {@link SearchEngine} run: the best move found, its
+ * score and how much work went into it.
+ */
+public final class SearchResult {
+    /** Best move as a packed {@link Move}, or {@link Move#NONE} if there is no legal move. */
+    public final int bestMove;
+    /** Score in centipawns from the side to move's point of view. */
+    public final int score;
+    /** Deepest fully completed iteration. */
+    public final int depth;
+    public final long nodes;
+    public final long elapsedMillis;
+
+    public SearchResult(int bestMove, int score, int depth, long nodes, long elapsedMillis) {
+        this.bestMove = bestMove;
+        this.score = score;
+        this.depth = depth;
+        this.nodes = nodes;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    /** True if the score announces a forced mate for either side. */
+    public boolean isMateScore() {
+        return Math.abs(score) >= SearchEngine.MATE - SearchEngine.MAX_PLY;
+    }
+
+    public long nodesPerSecond() {
+        return (elapsedMillis <= 0) ? nodes * 1000 : nodes * 1000 / elapsedMillis;
+    }
+
+    @Override
+    public String toString() {
+        String move = (bestMove == Move.NONE) ? "(none)" : Move.toAlg(bestMove);
+        return String.format("bestmove %s score %d depth %d nodes %d time %dms nps %d",
+                move, score, depth, nodes, elapsedMillis, nodesPerSecond());
+    }
+}
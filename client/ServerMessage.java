@@ -0,0 +1,245 @@
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * ServerMessage
+ *
+ * A server line decoded once, in {@link NetworkClient}, into an immutable
+ * typed event. Handlers switch on {@link #type} and read fields instead of
+ * re-tokenizing the text.
+ *
+ * Frequent messages are flyweights: payload-less lines share one instance
+ * per type, TIME shares one per second count and OPP_MV one per move. Such
+ * instances carry the canonical text of their line, so {@link #line()} can
+ * differ from the wire in whitespace only.
+ */
+public class ServerMessage {
+    private static final int TIME_CACHE_SIZE = 1024;
+
+    private static final ServerMessage[] BARE = new ServerMessage[MessageType.values().length];
+    private static final Time[] TIMES = new Time[TIME_CACHE_SIZE];
+    private static final OppMove[] MOVES = new OppMove[64 * 64 * 5];
+
+    static {
+        for (MessageType t : MessageType.values()) BARE[t.ordinal()] = new ServerMessage(t, t.token);
+    }
+
+    /** Kind of message, from the leading token. */
+    public final MessageType type;
+    private final String line;
+
+    protected ServerMessage(MessageType type, String line) {
+        this.type = type;
+        this.line = line;
+    }
+
+    /**
+     * The message text, trimmed.
+     */
+    public String line() {
+        return line;
+    }
+
+    @Override
+    public String toString() {
+        return line;
+    }
+
+    /**
+     * Decodes a server line.
+     * @param line The line without terminator.
+     * @return The typed message; a plain ServerMessage for payload-less or malformed lines.
+     */
+    public static ServerMessage decode(String line) {
+        String u = line.trim();
+        return decode(u, MessageType.of(u));
+    }
+
+    /**
+     * Decodes a trimmed line whose type is already known.
+     */
+    static ServerMessage decode(String u, MessageType type) {
+        switch (type) {
+            case TIME:
+                return Time.parse(u);
+            case OPP_MV:
+                return OppMove.parse(u);
+            case START:
+            case RESUME:
+                return new Start(type, u, Protocol.field(u, 1), Protocol.field(u, 2));
+            case ROOMLIST:
+                return new RoomList(u, type.payload(u));
+            case HISTORY:
+                return new History(type, u, 0, type.payload(u));
+            case HISTORY_FROM:
+                return History.parseFrom(u);
+            case WELCOME:
+            case WAITING:
+            case ERR:
+                return new Text(type, u, type.payload(u));
+            default:
+                return u.equals(type.token) ? BARE[type.ordinal()] : new ServerMessage(type, u);
+        }
+    }
+
+    /**
+     * TIME: seconds left on the current turn.
+     */
+    public static final class Time extends ServerMessage {
+        public final int seconds;
+
+        private Time(String line, int seconds) {
+            super(MessageType.TIME, line);
+            this.seconds = seconds;
+        }
+
+        static ServerMessage parse(String u) {
+            int seconds;
+            try {
+                seconds = Integer.parseInt(MessageType.TIME.payload(u));
+            } catch (NumberFormatException e) {
+                return new ServerMessage(MessageType.TIME, u);
+            }
+            if (seconds < 0 || seconds >= TIME_CACHE_SIZE) return new Time(u, seconds);
+            Time t = TIMES[seconds];
+            if (t == null) {
+                // Racing threads may each build one; they are equal and immutable
+                t = new Time(Protocol.RESP_TIME + " " + seconds, seconds);
+                TIMES[seconds] = t;
+            }
+            return t;
+        }
+    }
+
+    /**
+     * OPP_MV: the opponent's move, in board coordinates (row 0 is rank 8).
+     */
+    public static final class OppMove extends ServerMessage {
+        private static final String PROMOS = "\0qrbn";
+
+        public final int fromRow, fromCol, toRow, toCol;
+        /** Promotion piece letter as sent, or 0 for none. */
+        public final char promo;
+        /** Move in coordinate notation, e.g. "e7e5" or "a2a1q". */
+        public final String move;
+
+        private OppMove(String line, String move, int fromRow, int fromCol, int toRow, int toCol, char promo) {
+            super(MessageType.OPP_MV, line);
+            this.move = move;
+            this.fromRow = fromRow;
+            this.fromCol = fromCol;
+            this.toRow = toRow;
+            this.toCol = toCol;
+            this.promo = promo;
+        }
+
+        static ServerMessage parse(String u) {
+            String mv = Protocol.field(u, 1);
+            if (mv == null || mv.length() < 4 || mv.length() > 5
+                    || !isFile(mv.charAt(0)) || !isRank(mv.charAt(1))
+                    || !isFile(mv.charAt(2)) || !isRank(mv.charAt(3))) {
+                return new ServerMessage(MessageType.OPP_MV, u);
+            }
+            char promo = mv.length() == 5 ? mv.charAt(4) : 0;
+            int p = PROMOS.indexOf(Character.toLowerCase(promo));
+            int fromRow = 8 - (mv.charAt(1) - '0'), fromCol = mv.charAt(0) - 'a';
+            int toRow = 8 - (mv.charAt(3) - '0'), toCol = mv.charAt(2) - 'a';
+            if (p < 0 || Character.isUpperCase(promo)) {
+                // Unknown or upper-case promotion letter: decode, but do not cache
+                return new OppMove(u, mv, fromRow, fromCol, toRow, toCol, promo);
+            }
+            int idx = ((fromRow * 8 + fromCol) * 64 + toRow * 8 + toCol) * 5 + p;
+            OppMove m = MOVES[idx];
+            if (m == null) {
+                m = new OppMove(Protocol.RESP_OPP_MV + " " + mv, mv, fromRow, fromCol, toRow, toCol, promo);
+                MOVES[idx] = m;
+            }
+            return m;
+        }
+
+        private static boolean isFile(char c) { return c >= 'a' && c <= 'h'; }
+        private static boolean isRank(char c) { return c >= '1' && c <= '8'; }
+    }
+
+    /**
+     * START and RESUME: opponent name and the local player's color.
+     */
+    public static final class Start extends ServerMessage {
+        public final String opponent;
+        /** 0 for white, 1 for black. */
+        public final int color;
+
+        private Start(MessageType type, String line, String opponent, String colorWord) {
+            super(type, line);
+            this.opponent = opponent != null ? opponent : "Unknown";
+            this.color = (colorWord == null || colorWord.equalsIgnoreCase("white")) ? 0 : 1;
+        }
+    }
+
+    /**
+     * ROOMLIST: the rooms as the server lists them, or none for "EMPTY".
+     */
+    public static final class RoomList extends ServerMessage {
+        /** Everything after the token, e.g. for detecting an unchanged list. */
+        public final String payload;
+        public final List<String> rooms;
+
+        private RoomList(String line, String payload) {
+            super(MessageType.ROOMLIST, line);
+            this.payload = payload;
+            this.rooms = payload.isEmpty() || payload.equals("EMPTY")
+                    ? Collections.<String>emptyList() : words(payload);
+        }
+    }
+
+    /**
+     * HISTORY: all moves of the game so far, oldest first. HISTORY_FROM: only
+     * the moves after ply {@link #from}.
+     */
+    public static final class History extends ServerMessage {
+        /** Plies before the first of {@link #moves}; 0 for a full HISTORY. */
+        public final int from;
+        public final List<String> moves;
+
+        private History(MessageType type, String line, int from, String payload) {
+            super(type, line);
+            this.from = from;
+            this.moves = words(payload);
+        }
+
+        static ServerMessage parseFrom(String u) {
+            String payload = MessageType.HISTORY_FROM.payload(u);
+            int sp = payload.indexOf(' ');
+            try {
+                int from = Integer.parseInt(sp < 0 ? payload : payload.substring(0, sp));
+                if (from >= 0) return new History(MessageType.HISTORY_FROM, u, from, sp < 0 ? "" : payload.substring(sp + 1));
+            } catch (NumberFormatException ignored) {
+            }
+            return new ServerMessage(MessageType.HISTORY_FROM, u);
+        }
+    }
+
+    /**
+     * Messages whose payload is free text: WELCOME, WAITING and ERR.
+     */
+    public static final class Text extends ServerMessage {
+        public final String text;
+
+        private Text(MessageType type, String line, String text) {
+            super(type, line);
+            this.text = text;
+        }
+    }
+
+    /**
+     * Splits on single spaces, dropping empty words.
+     */
+    private static List<String> words(String payload) {
+        if (payload.isEmpty()) return Collections.emptyList();
+        String[] parts = payload.split(" ");
+        int n = 0;
+        for (String p : parts) if (!p.isEmpty()) parts[n++] = p;
+        return Collections.unmodifiableList(Arrays.asList(n == parts.length ? parts : Arrays.copyOf(parts, n)));
+    }
+}
@@ -0,0 +1,61 @@
+/**
+ * SmpBench
+ *
+ * Measures how {@link ParallelSearch} scales with thread count: searches a
+ * fixed set of positions to a fixed depth with 1, 2, 4 ... N threads and
+ * prints time-to-depth, nodes per second and speedup over one thread.
+ * Every run gets a fresh transposition table of the same size.
+ *
+ * Usage: java SmpBench [depth] [maxThreads] [hashMb]
+ */
+public final class SmpBench {
+    private SmpBench() {}
+
+    private static final String[] POSITIONS = {
+        Perft.START_FEN,
+        "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+        "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10",
+        "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+    };
+
+    public static void main(String[] args) {
+        int depth = (args.length > 0) ? Integer.parseInt(args[0]) : 8;
+        int maxThreads = (args.length > 1) ? Integer.parseInt(args[1]) : ParallelSearch.DEFAULT_THREADS;
+        int hashMb = (args.length > 2) ? Integer.parseInt(args[2]) : TranspositionTable.DEFAULT_SIZE_MB;
+
+        System.out.printf("depth %d, hash %d MB, up to %d threads%n", depth, hashMb, maxThreads);
+        System.out.printf("%8s %12s %14s %12s %8s%n", "threads", "time ms", "nodes", "nps", "speedup");
+
+        // One untimed pass so the JIT has compiled the search before measuring
+        runAll(1, Math.min(depth, 6), hashMb);
+
+        long baseMs = -1;
+        for (int threads = 1; threads <= maxThreads; threads = nextCount(threads, maxThreads)) {
+            long[] r = runAll(threads, depth, hashMb);
+            long ms = Math.max(1, r[0]);
+            if (baseMs < 0) baseMs = ms;
+            System.out.printf("%8d %12d %14d %12d %8.2f%n",
+                    threads, ms, r[1], r[1] * 1000 / ms, (double) baseMs / ms);
+        }
+    }
+
+    private static int nextCount(int threads, int maxThreads) {
+        if (threads == maxThreads) return maxThreads + 1;
+        return Math.min(threads * 2, maxThreads);
+    }
+
+    /** Returns { total milliseconds, total nodes } over all positions. */
+    private static long[] runAll(int threads, int depth, int hashMb) {
+        long ms = 0, nodes = 0;
+        BitboardPosition p = new BitboardPosition();
+        for (String fen : POSITIONS) {
+            ParallelSearch search = new ParallelSearch(threads, new TranspositionTable(hashMb));
+            p.setFen(fen);
+            SearchResult r = search.search(p, depth, 0);
+            search.shutdown();
+            ms += r.elapsedMillis;
+            nodes += r.nodes;
+        }
+        return new long[] { ms, nodes };
+    }
+}
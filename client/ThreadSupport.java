@@ -0,0 +1,74 @@
+import java.lang.reflect.Method;
+
+/**
+ * ThreadSupport
+ *
+ * Creates the client's I/O and housekeeping threads. With
+ * -Dchess.threads.virtual=true on JDK 21+ they are virtual threads; on
+ * older runtimes (including the Java 8 build from pom_java8.xml) or without
+ * the switch they are ordinary platform threads.
+ *
+ * Virtual threads are looked up reflectively so the class still compiles
+ * and runs on Java 8. CPU-bound engine threads, the NIO selector thread and
+ * the timer thread do not go through here; they always stay on platform
+ * threads.
+ */
+public final class ThreadSupport {
+    /** Set to "true" to run network and background tasks on virtual threads. */
+    public static final String VIRTUAL_PROPERTY = "chess.threads.virtual";
+
+    private static final Method OF_VIRTUAL;   // Thread.ofVirtual()
+    private static final Method BUILDER_NAME; // Thread.Builder.name(String)
+    private static final Method UNSTARTED;    // Thread.Builder.unstarted(Runnable)
+
+    static {
+        Method ofVirtual = null, name = null, unstarted = null;
+        if (Boolean.getBoolean(VIRTUAL_PROPERTY)) {
+            try {
+                Class<?> builder = Class.forName("java.lang.Thread$Builder");
+                ofVirtual = Thread.class.getMethod("ofVirtual");
+                name = builder.getMethod("name", String.class);
+                unstarted = builder.getMethod("unstarted", Runnable.class);
+                // Fails early on runtimes where virtual threads exist but are disabled
+                unstarted.invoke(name.invoke(ofVirtual.invoke(null), "probe"), (Runnable) () -> {});
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                System.out.println("Virtual threads unavailable, using platform threads: " + e);
+                ofVirtual = null;
+            }
+        }
+        OF_VIRTUAL = ofVirtual;
+        BUILDER_NAME = name;
+        UNSTARTED = unstarted;
+    }
+
+    private ThreadSupport() {}
+
+    /**
+     * Creates an unstarted thread. Platform threads keep the default daemon status
+     * of the caller; virtual threads are always daemon threads.
+     * @param name Thread name.
+     * @param task Code to run.
+     */
+    public static Thread newThread(String name, Runnable task) {
+        if (OF_VIRTUAL != null) {
+            try {
+                return (Thread) UNSTARTED.invoke(BUILDER_NAME.invoke(OF_VIRTUAL.invoke(null), name), task);
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException("Cannot create virtual thread " + name, e);
+            }
+        }
+        return new Thread(task, name);
+    }
+
+    /**
+     * Creates and starts a daemon thread for a one-off background task.
+     * @param name Thread name.
+     * @param task Code to run.
+     */
+    public static Thread start(String name, Runnable task) {
+        Thread t = newThread(name, task);
+        t.setDaemon(true);
+        t.start();
+        return t;
+    }
+}
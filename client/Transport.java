@@ -0,0 +1,87 @@
+import java.io.IOException;
+
+/**
+ * Transport
+ *
+ * Line-oriented byte pipe underneath {@link NetworkClient}. A transport only
+ * moves text lines between the socket and its {@link Handler}; heartbeats,
+ * acknowledgements and listener callbacks stay in NetworkClient, so every
+ * transport speaks exactly the same protocol. Inbound bytes are split by a
+ * {@link LineFramer}, which reports PNG and ACK frames without decoding them.
+ *
+ * Implementations: {@link BlockingTransport} (one socket, a reader and a
+ * writer thread) and {@link NioTransport} (non-blocking channels multiplexed
+ * over a shared selector thread).
+ */
+public interface Transport {
+    /**
+     * Receives inbound lines and the end of the connection.
+     * Callbacks come from a transport thread, never from the caller of send().
+     */
+    interface Handler {
+        /**
+         * Invoked for every complete line, without its line terminator.
+         */
+        void onLine(String line);
+
+        /**
+         * Invoked for a "PNG" heartbeat reply instead of {@link #onLine}.
+         */
+        default void onPong() {
+            onLine(Protocol.RESP_PING);
+        }
+
+        /**
+         * Invoked for a two-digit acknowledgement instead of {@link #onLine}.
+         * @param code The ACK code, 0 to 99.
+         */
+        default void onAck(int code) {
+            onLine(code < 10 ? "0" + code : Integer.toString(code));
+        }
+
+        /**
+         * Invoked exactly once when the connection ends.
+         * @param cause The I/O error that ended it, or null for a clean close by either side.
+         */
+        void onClosed(IOException cause);
+    }
+
+    /**
+     * Connects to the server. Lines may be delivered to the handler as soon as this returns.
+     * If the connection cannot be established, lines queued so far are discarded, so that
+     * a later open does not send them ahead of its own handshake. A {@link #close()} from
+     * another thread aborts an open in progress.
+     * @param timeoutMillis Longest time to wait for the connection; 0 waits indefinitely.
+     * @throws IOException If the connection cannot be established in time.
+     */
+    void open(String host, int port, int timeoutMillis, Handler handler) throws IOException;
+
+    /**
+     * Queues a line for sending; the transport appends the terminator. Never blocks.
+     * Lines sent after {@link #close()} are dropped.
+     */
+    void send(String line);
+
+    /**
+     * Switches both directions to the BIN1 binary framing of {@link BinaryCodec}.
+     * Inbound bytes after the line being handled are decoded as frames, and lines
+     * sent from now on are encoded as frames. Must be called from within
+     * {@link Handler#onLine}, so the switch happens at an exact byte position.
+     */
+    void enableBinary();
+
+    /**
+     * Reports socket bytes to the given metrics from now on. Call before {@link #open}.
+     */
+    void setMetrics(ConnectionMetrics metrics);
+
+    /**
+     * Returns the number of lines queued by {@link #send} and not yet written.
+     */
+    int pendingWrites();
+
+    /**
+     * Closes the connection and drops unsent lines. Safe to call more than once and from any thread.
+     */
+    void close();
+}
@@ -0,0 +1,184 @@
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * TranspositionTable
+ *
+ * Fixed-size hash table of search results keyed by Zobrist hash, stored in
+ * two parallel {@code long} arrays so that it costs 16 bytes per entry and
+ * never allocates after construction.
+ *
+ * The table is shared between search threads without locks. Each slot keeps
+ * the packed entry in {@code data} and {@code key ^ data} in {@code keys}; a
+ * reader only trusts an entry if XORing the two words gives back the key it
+ * asked for, so a slot torn by two concurrent writers simply misses.
+ *
+ * Slots are grouped in buckets of two. A store overwrites the entry for the
+ * same position if present, otherwise the shallower entry or one left over
+ * from an earlier search.
+ */
+public final class TranspositionTable {
+    public static final int BOUND_NONE = 0;
+    /** Score is an upper bound: every move failed low. */
+    public static final int BOUND_UPPER = 1;
+    /** Score is a lower bound: a move failed high. */
+    public static final int BOUND_LOWER = 2;
+    public static final int BOUND_EXACT = 3;
+
+    /** Default size in MB, overridable with -Dchess.engine.hashMb=N */
+    public static final int DEFAULT_SIZE_MB = Integer.getInteger("chess.engine.hashMb", 16);
+
+    private static final int ENTRY_BYTES = 16;
+    private static final int BUCKET = 2;
+
+    // Packed data layout
+    private static final int MOVE_BITS = 19;
+    private static final long MOVE_MASK = (1L << MOVE_BITS) - 1;
+    private static final int SCORE_SHIFT = 19;
+    private static final int DEPTH_SHIFT = 35;
+    private static final int BOUND_SHIFT = 43;
+    private static final int AGE_SHIFT = 45;
+
+    private final long[] keys;
+    private final long[] data;
+    private final int mask;
+    private volatile int age;
+
+    private final LongAdder probes = new LongAdder();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder stores = new LongAdder();
+
+    /**
+     * @param sizeMb Table size in megabytes, rounded down to a power of two entries.
+     */
+    public TranspositionTable(int sizeMb) {
+        long entries = Math.max(BUCKET, (long) Math.max(1, sizeMb) * 1024 * 1024 / ENTRY_BYTES);
+        int n = Integer.highestOneBit((int) Math.min(entries, 1 << 30));
+        keys = new long[n];
+        data = new long[n];
+        mask = (n - 1) & ~(BUCKET - 1);
+    }
+
+    public TranspositionTable() {
+        this(DEFAULT_SIZE_MB);
+    }
+
+    /**
+     * Marks the start of a new search so entries from older searches are replaced first.
+     */
+    public void newSearch() {
+        age = (age + 1) & 0xFF;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, 0L);
+        Arrays.fill(data, 0L);
+        probes.reset();
+        hits.reset();
+        stores.reset();
+    }
+
+    /**
+     * Looks up a position.
+     *
+     * @return The packed entry, or 0 if the position is not stored. Decode with the static accessors.
+     */
+    public long probe(long key) {
+        probes.increment();
+        int i = (int) key & mask;
+        for (int j = i; j < i + BUCKET; j++) {
+            long d = data[j];
+            if ((keys[j] ^ d) == key && d != 0) {
+                hits.increment();
+                return d;
+            }
+        }
+        return 0L;
+    }
+
+    /**
+     * Stores a search result. Mate scores must already be adjusted to be relative to this node.
+     */
+    public void store(long key, int move, int score, int depth, int bound) {
+        int i = (int) key & mask;
+        int a = age;
+        int victim = i;
+        int worst = Integer.MAX_VALUE;
+        for (int j = i; j < i + BUCKET; j++) {
+            long d = data[j];
+            if ((keys[j] ^ d) == key) {
+                // Keep the known best move if this search did not find one
+                if (move == Move.NONE) move = move(d);
+                victim = j;
+                break;
+            }
+            // Entries from previous searches count as much shallower
+            int value = depth(d) - (((a - age(d)) & 0xFF) << 2);
+            if (value < worst) {
+                worst = value;
+                victim = j;
+            }
+        }
+        long d = (move & MOVE_MASK)
+               | ((long) (score & 0xFFFF) << SCORE_SHIFT)
+               | ((long) (depth & 0xFF) << DEPTH_SHIFT)
+               | ((long) bound << BOUND_SHIFT)
+               | ((long) a << AGE_SHIFT);
+        data[victim] = d;
+        keys[victim] = key ^ d;
+        stores.increment();
+    }
+
+    public static int move(long entry) {
+        return (int) (entry & MOVE_MASK);
+    }
+
+    public static int score(long entry) {
+        return (short) (entry >>> SCORE_SHIFT);
+    }
+
+    public static int depth(long entry) {
+        return (int) (entry >>> DEPTH_SHIFT) & 0xFF;
+    }
+
+    public static int bound(long entry) {
+        return (int) (entry >>> BOUND_SHIFT) & 3;
+    }
+
+    private static int age(long entry) {
+        return (int) (entry >>> AGE_SHIFT) & 0xFF;
+    }
+
+    public int capacity() {
+        return keys.length;
+    }
+
+    public long probes() {
+        return probes.sum();
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long stores() {
+        return stores.sum();
+    }
+
+    /** Fraction of probes that found their position, between 0 and 1. */
+    public double hitRate() {
+        long p = probes.sum();
+        return (p == 0) ? 0.0 : (double) hits.sum() / p;
+    }
+
+    /** Permille of sampled slots written during the current search, as UCI engines report it. */
+    public int hashfull() {
+        int used = 0;
+        int a = age;
+        int sample = Math.min(1000, data.length);
+        for (int i = 0; i < sample; i++) {
+            if (data[i] != 0 && age(data[i]) == a) used++;
+        }
+        return used * 1000 / sample;
+    }
+}
@@ -0,0 +1,70 @@
+/**
+ * Zobrist
+ *
+ * Random 64-bit keys for Zobrist position hashing. A position's hash is the
+ * XOR of the keys of every piece on its square, the side to move, the
+ * castling rights and the en-passant file, so a move updates it with a few
+ * XORs instead of rehashing the board.
+ *
+ * Keys come from a fixed-seed generator, so hashes are stable across runs
+ * and can be stored or compared between clients.
+ */
+public final class Zobrist {
+    private Zobrist() {}
+
+    /** PIECE[pieceIndex][square] */
+    static final long[][] PIECE = new long[12][64];
+    /** XORed in when Black is to move. */
+    static final long SIDE;
+    /** CASTLING[rights] for every combination of the four castling bits. */
+    static final long[] CASTLING = new long[16];
+    /** EP_FILE[col] for the file of the en-passant target. */
+    static final long[] EP_FILE = new long[8];
+
+    static {
+        long seed = 0x5EED_C0DE_1234_ABCDL;
+        for (int p = 0; p < 12; p++) {
+            for (int sq = 0; sq < 64; sq++) {
+                seed += 0x9E3779B97F4A7C15L;
+                PIECE[p][sq] = mix(seed);
+            }
+        }
+        seed += 0x9E3779B97F4A7C15L;
+        SIDE = mix(seed);
+        for (int i = 0; i < 16; i++) {
+            seed += 0x9E3779B97F4A7C15L;
+            CASTLING[i] = mix(seed);
+        }
+        CASTLING[0] = 0L;
+        for (int i = 0; i < 8; i++) {
+            seed += 0x9E3779B97F4A7C15L;
+            EP_FILE[i] = mix(seed);
+        }
+    }
+
+    /** SplitMix64 finalizer. */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    public static long epKey(int epSquare) {
+        return (epSquare < 0) ? 0L : EP_FILE[epSquare & 7];
+    }
+
+    /**
+     * Hashes a position from scratch. Used to seed the incremental hash and to verify it.
+     */
+    public static long hash(BitboardPosition p) {
+        long h = 0L;
+        for (int sq = 0; sq < 64; sq++) {
+            int idx = p.mailbox[sq];
+            if (idx != BitboardPosition.NO_PIECE) h ^= PIECE[idx][sq];
+        }
+        if (p.sideToMove == BitboardPosition.BLACK) h ^= SIDE;
+        h ^= CASTLING[p.castling];
+        h ^= epKey(p.epSquare);
+        return h;
+    }
+}
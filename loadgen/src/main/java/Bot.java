@@ -0,0 +1,313 @@
+import java.io.IOException;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Bot
+ *
+ * One headless player on its own {@link NetworkClient}. Bots come in pairs:
+ * the host opens a room with NEW, the guest finds it with LIST and joins.
+ * Both then play random legal moves generated by a {@link BoardModel} of
+ * their own until one side is mated or stalemated, or the ply limit is hit,
+ * at which point the side to move resigns or offers a draw, which the
+ * other side accepts. After the server returns them to the lobby they play
+ * again until their games are used up, then disconnect.
+ *
+ * Callbacks arrive on transport threads and timer threads, so all state is
+ * guarded by the bot's monitor; nothing in here blocks.
+ */
+final class Bot implements NetworkClient.NetworkListener {
+    private static final long RETRY_MS = 50;
+    private static final int MAX_LIST_MISSES = 20; // Then join by number; long lists may be cut short
+
+    private final LoadGenerator gen;
+    final String name;
+    private final String sessionId = UUID.randomUUID().toString().substring(0, 8);
+    private final boolean host;
+    private Bot partner;
+    private NetworkClient client;
+
+    private volatile int roomId = -1; // Host: room to join, published on WAITING
+    private volatile boolean done = false;
+    private int gamesLeft;
+    private boolean inLobby = false;
+    private boolean listing = false; // Guest: waiting for the ROOMLIST of its own LIST
+    private long handshakeStart = 0; // 0 once the handshake is measured
+    private long joinStart = 0;
+    private int listMisses = 0;
+
+    private BoardModel board; // Null outside a game
+    private int color;
+    private int plies;
+    private int pendingMove = Move.NONE; // Sent, waiting for OK_MV
+    private final int[] moves = new int[MoveGenerator.MAX_MOVES];
+
+    Bot(LoadGenerator gen, String name, boolean host, int games) {
+        this.gen = gen;
+        this.name = name;
+        this.host = host;
+        this.gamesLeft = games;
+    }
+
+    static void pair(Bot host, Bot guest) {
+        host.partner = guest;
+        guest.partner = host;
+    }
+
+    /**
+     * Connects and sends HELLO. Blocks for the TCP connect only.
+     */
+    void start() {
+        NetworkClient c = new NetworkClient(this, gen.metrics);
+        synchronized (this) {
+            client = c;
+            handshakeStart = System.nanoTime();
+        }
+        try {
+            c.connect(gen.host, gen.port, name, sessionId);
+        } catch (IOException e) {
+            gen.connectFailed(e);
+            finish(false);
+        }
+    }
+
+    /**
+     * Closes the connection without waiting for the current game.
+     */
+    void stop() {
+        NetworkClient c;
+        synchronized (this) {
+            done = true;
+            c = client;
+        }
+        if (c != null) c.closeConnection();
+    }
+
+    boolean isDone() {
+        return done;
+    }
+
+    /**
+     * Describes where an unfinished bot is, for the time-limit report.
+     */
+    synchronized String describe() {
+        if (board == null) return name + ": " + (inLobby ? "in lobby" : "connecting") + ", " + gamesLeft + " game(s) left";
+        int n = board.generateLegalMoves(color, moves);
+        return name + ": in game as " + (color == 0 ? "white" : "black") + ", ply " + plies
+                + (pendingMove != Move.NONE ? ", waiting for OK_MV of " + Move.toAlg(pendingMove) : "")
+                + ", " + n + " legal move(s)\n" + board;
+    }
+
+    @Override
+    public void onConnected() {
+    }
+
+    @Override
+    public void onDisconnected() {
+        if (!done) {
+            gen.dropped();
+            finish(false);
+        }
+    }
+
+    @Override
+    public void onNetworkError(Exception ex) {
+    }
+
+    @Override
+    public synchronized void onServerMessage(ServerMessage m) {
+        if (done) return;
+        switch (m.type) {
+            case LOBBY:
+                if (handshakeStart != 0) {
+                    gen.handshake.record((System.nanoTime() - handshakeStart) / 1000);
+                    handshakeStart = 0;
+                }
+                inLobby = true;
+                nextRound();
+                break;
+            case WAITING:
+                roomId = roomNumber(((ServerMessage.Text) m).text);
+                break;
+            case ROOMLIST:
+                if (listing) {
+                    listing = false;
+                    join((ServerMessage.RoomList) m);
+                }
+                break;
+            case START:
+                startGame(((ServerMessage.Start) m).color);
+                break;
+            case OK_MV:
+                if (board != null && pendingMove != Move.NONE) {
+                    board.makeMove(pendingMove);
+                    pendingMove = Move.NONE;
+                    plies++;
+                    gen.moves.increment();
+                }
+                break;
+            case OPP_MV:
+                opponentMoved(m);
+                break;
+            case DRW_OFF:
+                send(Protocol.CMD_DRW_ACC);
+                break;
+            case ERR:
+                gen.errors.increment();
+                if (board != null) {
+                    pendingMove = Move.NONE;
+                    send(Protocol.CMD_RES); // Out of step with the server; end the game
+                } else if (inLobby && !host) {
+                    retry(this::list); // Room not there (yet)
+                }
+                break;
+            case WIN_CHKM:
+            case CHKM:
+            case SM:
+            case RES:
+            case OPP_RES:
+            case DRW_ACD:
+            case TOUT:
+            case OPP_TOUT:
+            case OPP_EXT:
+            case OPP_KICK:
+                endGame(m.type);
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * In the lobby: host a room, look for the partner's, or leave when done.
+     */
+    private void nextRound() {
+        if (gamesLeft <= 0) {
+            finish(true);
+        } else if (host) {
+            send(Protocol.CMD_NEW);
+        } else {
+            list();
+        }
+    }
+
+    private synchronized void list() {
+        if (done || !inLobby) return;
+        if (partner.done) {
+            finish(true);
+            return;
+        }
+        listing = true;
+        send(Protocol.CMD_LIST);
+    }
+
+    /**
+     * Joins the partner's room once the host has it open and listed.
+     */
+    private void join(ServerMessage.RoomList list) {
+        int id = partner.roomId;
+        String entry = id + ":" + partner.name;
+        if (id < 0 || (!list.rooms.contains(entry) && ++listMisses < MAX_LIST_MISSES)) {
+            retry(this::list);
+            return;
+        }
+        listMisses = 0;
+        joinStart = System.nanoTime();
+        send(Protocol.CMD_JOIN + " " + id);
+    }
+
+    private void startGame(int color) {
+        if (joinStart != 0) {
+            gen.join.record((System.nanoTime() - joinStart) / 1000);
+            joinStart = 0;
+        }
+        if (host) roomId = -1; // The guest must not join it again
+        inLobby = false;
+        board = new BoardModel();
+        this.color = color;
+        plies = 0;
+        pendingMove = Move.NONE;
+        if (color == 0) think();
+    }
+
+    private void opponentMoved(ServerMessage m) {
+        if (board == null || !(m instanceof ServerMessage.OppMove)) return;
+        ServerMessage.OppMove om = (ServerMessage.OppMove) m;
+        int promo = om.promo == 0 ? BitboardPosition.QUEEN : Move.promoType(om.promo); // Bare promotions queen
+        int mv = board.findLegalMove(om.fromRow * 8 + om.fromCol, om.toRow * 8 + om.toCol, promo);
+        if (mv != Move.NONE) {
+            board.makeMove(mv);
+            plies++;
+            think();
+            return;
+        }
+        gen.errors.increment();
+        send(Protocol.CMD_RES); // Boards disagree
+    }
+
+    /**
+     * Plays the next move, after the configured think time.
+     */
+    private void think() {
+        if (gen.thinkMillis > 0) HashedWheelTimer.shared().newTimeout(this::play, gen.thinkMillis);
+        else play();
+    }
+
+    private synchronized void play() {
+        if (done || board == null || pendingMove != Move.NONE) return;
+        int n = board.generateLegalMoves(color, moves);
+        if (n == 0) return; // Mate or stalemate; the server announces it
+        if (plies >= gen.maxPlies) {
+            if (ThreadLocalRandom.current().nextBoolean()) send(Protocol.CMD_RES);
+            else send(Protocol.CMD_DRW_OFF);
+            return;
+        }
+        pendingMove = moves[ThreadLocalRandom.current().nextInt(n)];
+        send(Protocol.CMD_MV + Move.toAlg(pendingMove));
+    }
+
+    private void endGame(MessageType result) {
+        if (board == null) return;
+        board = null;
+        pendingMove = Move.NONE;
+        gamesLeft--;
+        if (host) gen.gameOver(result);
+        // As ChessClient does: the C server returns a player to the lobby, with
+        // LOBBY, only once it hears from them after the game
+        send(Protocol.CMD_LIST);
+    }
+
+    private void retry(Runnable r) {
+        HashedWheelTimer.shared().newTimeout(r, RETRY_MS);
+    }
+
+    private void send(String line) {
+        NetworkClient c = client;
+        if (c != null) c.sendRaw(line);
+    }
+
+    private void finish(boolean close) {
+        synchronized (this) {
+            if (done) return;
+            done = true;
+        }
+        if (close) {
+            NetworkClient c;
+            synchronized (this) { c = client; }
+            if (c != null) c.closeConnection();
+        }
+        gen.botDone();
+    }
+
+    /**
+     * Parses the number out of a WAITING text such as "Room 12".
+     */
+    private static int roomNumber(String text) {
+        int i = text.lastIndexOf(' ');
+        try {
+            return Integer.parseInt(text.substring(i + 1));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,212 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * LoadGenerator
+ *
+ * Headless load test for the chess server. Starts N {@link Bot}s in pairs,
+ * ramped up at a fixed connection rate, lets each pair play a number of
+ * games, and reports throughput and latency percentiles for the HELLO to
+ * LOBBY handshake, JOIN to START, and MV to OK_MV.
+ *
+ * Usage:
+ *   java -jar loadgen.jar [--host h] [--port p] [--bots n] [--games g]
+ *                         [--plies n] [--think ms] [--rate conn/s]
+ *                         [--duration s] [--report s]
+ *
+ * The client's system properties apply as usual; this tool defaults to the
+ * NIO transport and to a quiet NetworkClient, so thousands of bots share a
+ * selector thread and do not flood the console.
+ */
+public class LoadGenerator {
+    final String host;
+    final int port;
+    final int maxPlies;
+    final long thinkMillis;
+    private final int botCount;
+    private final int games;
+    private final int rate;
+    private final long durationSeconds;
+    private final long reportSeconds;
+
+    /** Traffic of all bots, including the MV to OK_MV histogram. */
+    final ConnectionMetrics metrics = new ConnectionMetrics();
+    /** HELLO sent to LOBBY received, in microseconds (TCP connect included). */
+    final ConnectionMetrics.Histogram handshake = new ConnectionMetrics.Histogram();
+    /** JOIN sent to START received, in microseconds. */
+    final ConnectionMetrics.Histogram join = new ConnectionMetrics.Histogram();
+
+    final LongAdder moves = new LongAdder();
+    final LongAdder errors = new LongAdder();
+    private final LongAdder connectFailures = new LongAdder();
+    private final LongAdder drops = new LongAdder();
+    private final AtomicLongArray results = new AtomicLongArray(MessageType.values().length);
+    private final LongAdder gamesDone = new LongAdder();
+
+    private final List<Bot> bots = new ArrayList<>();
+    private final CountDownLatch finished;
+
+    LoadGenerator(String host, int port, int botCount, int games, int maxPlies, long thinkMillis,
+                  int rate, long durationSeconds, long reportSeconds) {
+        this.host = host;
+        this.port = port;
+        this.botCount = botCount + (botCount & 1); // Whole pairs
+        this.games = games;
+        this.maxPlies = maxPlies;
+        this.thinkMillis = thinkMillis;
+        this.rate = Math.max(1, rate);
+        this.durationSeconds = durationSeconds;
+        this.reportSeconds = Math.max(1, reportSeconds);
+        this.finished = new CountDownLatch(this.botCount);
+    }
+
+    void connectFailed(Exception e) {
+        if (connectFailures.sum() == 0) System.out.println("Connect failed: " + e.getMessage());
+        connectFailures.increment();
+    }
+
+    void dropped() {
+        drops.increment();
+    }
+
+    void botDone() {
+        finished.countDown();
+    }
+
+    /**
+     * Counts a finished game, once per pair (reported by the host).
+     */
+    void gameOver(MessageType result) {
+        gamesDone.increment();
+        results.incrementAndGet(result.ordinal());
+    }
+
+    /**
+     * Runs the whole test and prints the report.
+     * @return True if every bot finished its games within the duration.
+     */
+    boolean run() throws InterruptedException {
+        for (int i = 0; i < botCount; i += 2) {
+            Bot h = new Bot(this, "bot" + i, true, games);
+            Bot g = new Bot(this, "bot" + (i + 1), false, games);
+            Bot.pair(h, g);
+            bots.add(h);
+            bots.add(g);
+        }
+        System.out.printf("Starting %d bots against %s:%d, %d game(s) per pair, ramp %d conn/s, transport %s%n",
+                botCount, host, port, games, rate, System.getProperty(NetworkClient.TRANSPORT_PROPERTY));
+
+        long start = System.nanoTime();
+        Thread ramp = ThreadSupport.start("LoadRamp", () -> {
+            long interval = TimeUnit.SECONDS.toNanos(1) / rate;
+            for (int i = 0; i < bots.size(); i++) {
+                long due = start + i * interval;
+                long wait = due - System.nanoTime();
+                if (wait > 0) {
+                    try {
+                        TimeUnit.NANOSECONDS.sleep(wait);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                bots.get(i).start();
+            }
+        });
+
+        long deadline = start + TimeUnit.SECONDS.toNanos(durationSeconds);
+        boolean complete = false;
+        long lastMoves = 0, lastReport = start;
+        while (!complete) {
+            long left = deadline - System.nanoTime();
+            if (left <= 0) break;
+            complete = finished.await(Math.min(left, TimeUnit.SECONDS.toNanos(reportSeconds)), TimeUnit.NANOSECONDS);
+            long now = System.nanoTime();
+            long m = moves.sum();
+            System.out.printf("[%5.1fs] bots left %d, games %d, moves %d (%.0f/s), errors %d%n",
+                    (now - start) / 1e9, finished.getCount(), gamesDone.sum(), m,
+                    (m - lastMoves) / ((now - lastReport) / 1e9), errors.sum());
+            lastMoves = m;
+            lastReport = now;
+        }
+        long elapsed = System.nanoTime() - start;
+
+        ramp.interrupt();
+        if (!complete) {
+            int shown = 0;
+            for (Bot b : bots) {
+                if (b.isDone()) continue;
+                if (shown++ == 4) break;
+                System.out.println("Unfinished " + b.describe());
+            }
+        }
+        for (Bot b : bots) b.stop();
+        report(elapsed, complete);
+        return complete;
+    }
+
+    private void report(long elapsedNanos, boolean complete) {
+        double secs = elapsedNanos / 1e9;
+        System.out.println();
+        System.out.printf("%s after %.1f s%n", complete ? "Finished" : "Stopped at the time limit", secs);
+        System.out.printf("Games:       %d (%.1f/s) - checkmate %d, stalemate %d, resigned %d, drawn %d, other %d%n",
+                gamesDone.sum(), gamesDone.sum() / secs,
+                count(MessageType.WIN_CHKM, MessageType.CHKM), count(MessageType.SM),
+                count(MessageType.RES, MessageType.OPP_RES), count(MessageType.DRW_ACD),
+                count(MessageType.TOUT, MessageType.OPP_TOUT, MessageType.OPP_EXT, MessageType.OPP_KICK));
+        System.out.printf("Moves:       %d (%.0f/s)%n", moves.sum(), moves.sum() / secs);
+        System.out.printf("Messages:    in %d (%.0f/s, %d B), out %d (%.0f/s, %d B)%n",
+                metrics.getMessagesIn(), metrics.getMessagesIn() / secs, metrics.getBytesIn(),
+                metrics.getMessagesOut(), metrics.getMessagesOut() / secs, metrics.getBytesOut());
+        System.out.printf("Failures:    connect %d, dropped %d, protocol errors %d, read timeouts %d%n",
+                connectFailures.sum(), drops.sum(), errors.sum(), metrics.getTimeoutCloses());
+        System.out.println("Latency (ms)         count      p50      p99     p999      max");
+        line("handshake", handshake);
+        line("join", join);
+        line("move (MV->OK_MV)", metrics.moveAck());
+        line("ping (PING->PNG)", metrics.pingRtt());
+    }
+
+    private long count(MessageType... types) {
+        long n = 0;
+        for (MessageType t : types) n += results.get(t.ordinal());
+        return n;
+    }
+
+    private static void line(String label, ConnectionMetrics.Histogram h) {
+        System.out.printf("  %-17s %8d %8.2f %8.2f %8.2f %8.2f%n", label, h.count(),
+                h.percentile(0.50) / 1000.0, h.percentile(0.99) / 1000.0,
+                h.percentile(0.999) / 1000.0, h.max() / 1000.0);
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        if (System.getProperty(NetworkClient.TRANSPORT_PROPERTY) == null) System.setProperty(NetworkClient.TRANSPORT_PROPERTY, "nio");
+        if (System.getProperty("chess.net.quiet") == null) System.setProperty("chess.net.quiet", "true");
+
+        String host = "127.0.0.1";
+        int port = 10001, bots = 100, games = 1, plies = 40, rate = 200;
+        long think = 0, duration = 300, report = 5;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            String v = args[i + 1];
+            switch (args[i]) {
+                case "--host": host = v; break;
+                case "--port": port = Integer.parseInt(v); break;
+                case "--bots": bots = Integer.parseInt(v); break;
+                case "--games": games = Integer.parseInt(v); break;
+                case "--plies": plies = Integer.parseInt(v); break;
+                case "--think": think = Long.parseLong(v); break;
+                case "--rate": rate = Integer.parseInt(v); break;
+                case "--duration": duration = Long.parseLong(v); break;
+                case "--report": report = Long.parseLong(v); break;
+                default:
+                    System.out.println("Unknown option " + args[i]);
+                    System.exit(2);
+            }
+        }
+        boolean ok = new LoadGenerator(host, port, bots, games, plies, think, rate, duration, report).run();
+        System.exit(ok ? 0 : 1);
+    }
+}
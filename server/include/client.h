@@ -36,6 +36,8 @@ typedef struct Match Match;
 #define RESUME_MATCH        "RESUME %s %s"    /**< Notification: Match resumed after reconnect */
 #define OPPONENT_RETURNED   "OPP_RESUME %s %s"/**< Notification: Opponent has reconnected */
 #define MATCH_HISTORY       "HISTORY %s"      /**< Send move history to reconnecting client */
+#define MATCH_HISTORY_FROM  "HISTORY_FROM %d %s" /**< Send only the moves after the client's known ply */
+#define KNOWN_PLY           " PLY="           /**< HELLO token: plies the reconnecting client already has */
 #define MOVE_COMMAND        "MV"              /**< Client move command: "MV <move>" */
 #define OPPONENT_MOVE       "OPP_MV %s"       /**< Notification: Opponent made a move */
 #define ACCEPT_MOVE         "OK_MV"           /**< Confirmation: Your move was valid and accepted */
@@ -76,6 +76,7 @@ void *match_watchdog(void *arg);
 Client *match_reconnect(const char *name, const char *id, int new_sock);
 int match_try_resume(Match *m);
 int match_get_remaining_time(Match *m); 
+void match_send_history(Client *me, int known_ply);
 
 /* --- Cleanup --- */
 void match_leave_by_client(Client *me);
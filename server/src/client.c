@@ -312,10 +312,16 @@ int run_handshake(Client **me_ptr) {
 
         if (strncmp(linebuf, HELLO, 6) == 0) {
             char name[NAME_LEN]; char id[ID_LEN];
-            int args = sscanf(linebuf + 6, "%63s %31s", name, id);
+            int consumed = 0;
+            int args = sscanf(linebuf + 6, "%63s %31s%n", name, id, &consumed);
             if (args < 1) continue; 
             if (args < 2) strncpy(id, "unknown", sizeof(id));
 
+            // Optional "PLY=n" after the ID: moves the client has of the game it resumes
+            int known_ply = -1;
+            const char *ply = strstr(linebuf + 6 + consumed, KNOWN_PLY);
+            if (ply) known_ply = atoi(ply + strlen(KNOWN_PLY));
+
             Client *old_session = match_reconnect(name, id, me->sock);
             if (old_session) {
                 pthread_mutex_destroy(&me->lock);
@@ -332,14 +338,7 @@ int run_handshake(Client **me_ptr) {
                     Client *opp = (me->match->white == me) ? me->match->black : me->match->white;
                     send_protocol_msg(me, RESUME_MATCH, (opp&&opp->name[0])?opp->name:"Unknown", (me->color==0)?"white":"black");
                     if (opp && opp->sock > 0) send_protocol_msg(opp, OPPONENT_RETURNED, me->name, (me->color==0)?"black":"white");
-                    if (me->match && me->match->moves_count > 0) {
-                        char history[BIG_BUFFER_SZ] = "";
-                        for(size_t j=0; j<me->match->moves_count; j++) {
-                            strcat(history, me->match->moves[j]);
-                            strcat(history, " ");
-                        }
-                        send_protocol_msg(me, MATCH_HISTORY, history);
-                    }
+                    match_send_history(me, known_ply);
                     pthread_mutex_lock(&me->match->lock);
                     int rem = match_get_remaining_time(me->match);
                     pthread_mutex_unlock(&me->match->lock);
@@ -331,6 +331,39 @@ int match_get_remaining_time(Match *m) {
     int left = m->turn_timeout_seconds - elapsed; return (left < 0) ? 0 : left;
 }
 
+/**
+ * @brief Sends a reconnecting client the moves it missed.
+ * If the client reported a known ply count (PLY=n in HELLO) that fits the game
+ * so far, only the moves after it are sent, as HISTORY_FROM n. Otherwise the
+ * whole game goes out as HISTORY, and nothing at all before the first move.
+ *
+ * @param me The reconnected client.
+ * @param known_ply Plies the client already has, or -1 if it did not say.
+ */
+void match_send_history(Client *me, int known_ply) {
+    Match *m = me->match;
+    if (!m) return;
+
+    char history[BIG_BUFFER_SZ] = "";
+    size_t len = 0;
+
+    pthread_mutex_lock(&m->lock);
+    size_t count = m->moves_count;
+    int delta = (known_ply >= 0 && (size_t)known_ply <= count);
+    for (size_t j = delta ? (size_t)known_ply : 0; j < count; j++) {
+        size_t n = strlen(m->moves[j]);
+        if (len + n + 2 > sizeof(history)) break;
+        memcpy(history + len, m->moves[j], n);
+        len += n;
+        history[len++] = ' ';
+        history[len] = '\0';
+    }
+    pthread_mutex_unlock(&m->lock);
+
+    if (delta) send_protocol_msg(me, MATCH_HISTORY_FROM, known_ply, history);
+    else if (count > 0) send_protocol_msg(me, MATCH_HISTORY, history);
+}
+
 /**
  * @brief Appends a move string to the match history log.
  */
@@ -0,0 +1,794 @@
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * StandInServer
+ *
+ * A small Java stand-in for the C server, for running clients against
+ * without a native build. It follows the C server's message flow for the
+ * handshake, lobby and games: WELCOME on connect, an ACK for every command,
+ * rooms hosted with NEW and joined with JOIN, and moves relayed between
+ * the two players. Moves are checked for legality on a {@link BoardModel}
+ * of the room, which also detects check, checkmate and stalemate.
+ *
+ * A client that offers {@link Protocol#CAP_BIN1} in HELLO is answered with
+ * "PROTO BIN1" and served in the {@link BinaryCodec} format from then on;
+ * ACKs are piggy-backed onto the replies of the same command. A client
+ * offering {@link Protocol#CAP_DACK} is told "PROTO DACK" and may then
+ * acknowledge several messages with one ACK; client ACKs are not tracked
+ * either way.
+ *
+ * Disconnects and reconnects work as in the C server. A player who drops
+ * out of a game keeps their seat; after a grace period the turn clock stops
+ * and the opponent is told WAIT_CONN. A HELLO with the same name and session
+ * ID takes the seat back and is answered with RESUME, HISTORY and TIME, and
+ * the opponent with OPP_RESUME. If the HELLO says how many plies the client
+ * has (PLY=n), HISTORY_FROM n with only the later moves replaces HISTORY.
+ * Whoever stays away past the disconnect timeout loses with OPP_EXT to the
+ * opponent. The turn clock is enforced with TOUT and OPP_TOUT.
+ *
+ * For tests and benchmarks the server runs inside the JVM under test
+ * ({@code new StandInServer(0).start()}, then {@link #port()}) and can be
+ * scripted: {@link #latency} delays the handling of client lines,
+ * {@link #inject} makes the next matching line fail in one of the
+ * {@link Fault} ways, {@link #refuseConnections} answers new players with
+ * FULL, and {@link #dropConnections()} cuts every live connection at once.
+ *
+ * One thread per connection; the output of each command goes out as one
+ * batch. Clocks run on the client's {@link HashedWheelTimer}.
+ */
+public class StandInServer {
+    static final int DEFAULT_PORT = 10001;
+    static final int TURN_SECONDS = 180;
+    static final int GRACE_SECONDS = 3;       // DISCONNECT_GRACE_PERIOD in the C server
+    static final int DISCONNECT_SECONDS = 60; // DISCONNECT_TIMEOUT_SECONDS
+
+    /**
+     * What {@link #inject} does to the client line it matches.
+     */
+    public enum Fault {
+        /** Close the connection instead of answering, as a network failure would. */
+        DROP,
+        /** Stop reading and answering, PINGs included, until the client gives up. */
+        STALL,
+        /** Answer with the command's ACK and an ERR instead of handling it. */
+        ERR,
+        /** Ignore the line: no ACK, no reply, as if it was lost. */
+        SWALLOW
+    }
+
+    private static final class Injection {
+        final String prefix;
+        final Fault fault;
+
+        Injection(String prefix, Fault fault) {
+            this.prefix = prefix;
+            this.fault = fault;
+        }
+    }
+
+    private final ServerSocket serverSocket;
+    private final Map<Integer, Room> rooms = new ConcurrentHashMap<>();
+    private final Set<Session> sessions = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger nextRoomId = new AtomicInteger(1);
+    private final HashedWheelTimer timer = HashedWheelTimer.shared();
+    private volatile boolean running = true;
+
+    // Script, changeable while running
+    private volatile long latencyMillis = 0;
+    private final Map<String, Long> commandLatency = new ConcurrentHashMap<>();
+    private final Queue<Injection> injections = new ConcurrentLinkedQueue<>();
+    private volatile boolean refusing = false;
+    private volatile int turnSeconds = TURN_SECONDS;
+    private volatile long disconnectMillis = TimeUnit.SECONDS.toMillis(DISCONNECT_SECONDS);
+
+    /**
+     * Binds the server socket; connections are served once {@link #start()} runs.
+     * @param port Port to listen on, 0 for any free port.
+     */
+    public StandInServer(int port) throws IOException {
+        serverSocket = new ServerSocket();
+        serverSocket.setReuseAddress(true);
+        serverSocket.bind(new InetSocketAddress(port), 1024);
+    }
+
+    public int port() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Starts accepting connections on a background thread.
+     */
+    public StandInServer start() {
+        Thread t = new Thread(this::acceptLoop, "StandInAccept");
+        t.setDaemon(true);
+        t.start();
+        return this;
+    }
+
+    /**
+     * Stops accepting connections and closes every open one.
+     */
+    public void stop() {
+        running = false;
+        try { serverSocket.close(); } catch (IOException ignored) {}
+        dropConnections();
+    }
+
+    /**
+     * Delays the handling of every client line, and so every reply, by the given time.
+     */
+    public StandInServer latency(long millis) {
+        latencyMillis = millis;
+        return this;
+    }
+
+    /**
+     * Delays lines starting with the given command by the given time instead of the
+     * general latency, e.g. {@code latency(Protocol.CMD_MV, 20)}; a negative time
+     * removes the override.
+     */
+    public StandInServer latency(String command, long millis) {
+        if (millis < 0) commandLatency.remove(command);
+        else commandLatency.put(command, millis);
+        return this;
+    }
+
+    /**
+     * Makes the next client line starting with the given command, from any connection,
+     * fail in the given way. Injections are used once each, in the order added.
+     */
+    public StandInServer inject(String command, Fault fault) {
+        injections.add(new Injection(command, fault));
+        return this;
+    }
+
+    /**
+     * While set, new players are answered with FULL after their HELLO and disconnected,
+     * as by a full C server. Reconnects to a held seat are still let in.
+     */
+    public StandInServer refuseConnections(boolean refuse) {
+        refusing = refuse;
+        return this;
+    }
+
+    /**
+     * Sets the time per move for games started from now on.
+     */
+    public StandInServer turnSeconds(int seconds) {
+        turnSeconds = seconds;
+        return this;
+    }
+
+    /**
+     * Sets how long a disconnected player's seat is held before the game is lost.
+     */
+    public StandInServer disconnectTimeout(long millis) {
+        disconnectMillis = millis;
+        return this;
+    }
+
+    /**
+     * Closes every open connection without warning. Players in a game keep their
+     * seats for the disconnect timeout, so clients can reconnect and resume.
+     * @return The number of connections closed.
+     */
+    public int dropConnections() {
+        int n = 0;
+        for (Session s : sessions) {
+            s.close();
+            n++;
+        }
+        return n;
+    }
+
+    private void acceptLoop() {
+        while (running) {
+            try {
+                Socket s = serverSocket.accept();
+                Session session = new Session(s);
+                sessions.add(session);
+                Thread t = new Thread(session::run, "StandInSession-" + s.getPort());
+                t.setDaemon(true);
+                t.start();
+            } catch (IOException e) {
+                if (running) System.out.println("Accept failed: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * A hosted room: white waits for black; the game runs once both are in.
+     * Seats change hands when a player reconnects.
+     */
+    static final class Room {
+        final int id;
+        volatile Session white;
+        volatile Session black;
+        int turn = 0; // 0 white, 1 black; guarded by the room
+        boolean finished = false;
+        final List<String> moves = new ArrayList<>();
+        final BoardModel board = new BoardModel();
+        final int[] legal = new int[MoveGenerator.MAX_MOVES];
+        int turnSeconds;
+        long turnStart;    // System.nanoTime() when the current turn began
+        long pausedAt = 0; // Non-zero while the clock is stopped for a missing player
+        HashedWheelTimer.Timeout turnTimeout;
+
+        Room(int id, Session white) {
+            this.id = id;
+            this.white = white;
+        }
+
+        Session opponentOf(Session s) {
+            return s == white ? black : white;
+        }
+
+        boolean seated(Session s) {
+            return s == white || s == black;
+        }
+
+        long turnLeftMillis() {
+            long now = pausedAt != 0 ? pausedAt : System.nanoTime();
+            return TimeUnit.SECONDS.toMillis(turnSeconds) - TimeUnit.NANOSECONDS.toMillis(now - turnStart);
+        }
+
+        int turnLeftSeconds() {
+            return (int) Math.max(0, TimeUnit.MILLISECONDS.toSeconds(turnLeftMillis()));
+        }
+
+        void finish() {
+            finished = true;
+            if (turnTimeout != null) turnTimeout.cancel();
+        }
+    }
+
+    /**
+     * (Re)arms the turn clock of a running game; caller holds the room.
+     */
+    private void armTurnClock(Room r) {
+        if (r.turnTimeout != null) r.turnTimeout.cancel();
+        r.turnTimeout = null;
+        if (r.finished || r.pausedAt != 0) return;
+        r.turnTimeout = timer.newTimeout(() -> turnExpired(r), r.turnLeftMillis());
+    }
+
+    private void turnExpired(Room r) {
+        synchronized (r) {
+            if (r.finished || r.pausedAt != 0) return;
+            if (r.turnLeftMillis() > 0) { // Timer ticks are coarse
+                armTurnClock(r);
+                return;
+            }
+            r.finish();
+            Session loser = r.turn == 0 ? r.white : r.black;
+            Session winner = r.opponentOf(loser);
+            // Both go back to the lobby with the next line they send
+            if (loser != null && !loser.gone) loser.send(Protocol.RESP_TOUT);
+            if (winner != null && !winner.gone) winner.send(Protocol.RESP_OPP_TOUT);
+        }
+        rooms.remove(r.id);
+    }
+
+    /**
+     * The grace period of a disconnected player ran out: stop the clock and tell the opponent.
+     */
+    private void graceOver(Room r, Session s) {
+        synchronized (r) {
+            if (r.finished || !r.seated(s)) return;
+            if (r.pausedAt == 0) {
+                r.pausedAt = System.nanoTime();
+                armTurnClock(r);
+            }
+            Session opp = r.opponentOf(s);
+            if (opp != null && !opp.gone) opp.send(Protocol.RESP_WAIT_CONN);
+        }
+    }
+
+    /**
+     * A disconnected player did not come back in time; the opponent wins.
+     */
+    private void abandoned(Room r, Session s) {
+        synchronized (r) {
+            if (r.finished || !r.seated(s)) return;
+            r.finish();
+            Session opp = r.opponentOf(s);
+            if (opp != null && !opp.gone) opp.send(Protocol.RESP_OPP_EXT);
+        }
+        rooms.remove(r.id);
+    }
+
+    private enum State { HANDSHAKE, LOBBY, WAITING, GAME }
+
+    /**
+     * One client connection.
+     */
+    final class Session implements Transport.Handler {
+        private final Socket socket;
+        private final OutputStream out;
+        private final LineFramer framer = new LineFramer(this);
+        private final List<String> batch = new ArrayList<>(); // Replies to the command being handled
+        private BinaryCodec.Encoder encoder; // Set once output is BIN1
+        private boolean offeredBinary = false;
+        private boolean offeredDelayedAck = false;
+        private volatile boolean stalled = false;
+
+        // Changed by the opponent's thread on START and at the end of a game
+        private volatile State state = State.HANDSHAKE;
+        private String name = "unknown";
+        private String id = "unknown";
+        private volatile Room room;
+        private volatile int color = -1;
+
+        // Seat held after a disconnect; timeouts guarded by the room
+        private volatile boolean gone = false;
+        private HashedWheelTimer.Timeout graceTimeout;
+        private HashedWheelTimer.Timeout expiryTimeout;
+
+        Session(Socket socket) throws IOException {
+            this.socket = socket;
+            socket.setTcpNoDelay(true);
+            this.out = new BufferedOutputStream(socket.getOutputStream(), 8192);
+        }
+
+        void run() {
+            try {
+                InputStream in = socket.getInputStream();
+                send(Protocol.RESP_WELCOME);
+                byte[] chunk = new byte[8192];
+                int n;
+                while ((n = in.read(chunk)) >= 0) framer.feed(chunk, 0, n);
+            } catch (IOException ignored) {
+                // Connection gone
+            } finally {
+                framer.close();
+                try { socket.close(); } catch (IOException ignored) {}
+                sessions.remove(this);
+                onDisconnect();
+            }
+        }
+
+        @Override
+        public void onLine(String line) {
+            String u = line.trim();
+            if (u.isEmpty() || stalled) return;
+            if (!delay(u)) return;
+            Fault fault = takeFault(u);
+            if (fault != null) {
+                inflict(fault, u);
+                return;
+            }
+            if (u.equals(Protocol.CMD_PING)) {
+                send(Protocol.RESP_PING);
+                return;
+            }
+            if (offeredBinary && u.equals(Protocol.PROTO_BIN1)) {
+                // The client has switched; everything after this line is BIN1
+                framer.upgrade(new BinaryCodec.Decoder(this));
+                return;
+            }
+            if (state != State.HANDSHAKE) batch.add(ackFor(u));
+            try {
+                handle(u);
+            } finally {
+                flushBatch();
+            }
+        }
+
+        /**
+         * Sleeps for the scripted latency of a line.
+         * @return False if interrupted, the line is then dropped.
+         */
+        private boolean delay(String u) {
+            long d = latencyMillis;
+            if (!commandLatency.isEmpty()) {
+                for (Map.Entry<String, Long> e : commandLatency.entrySet()) {
+                    if (u.startsWith(e.getKey())) {
+                        d = e.getValue();
+                        break;
+                    }
+                }
+            }
+            if (d <= 0) return true;
+            try {
+                Thread.sleep(d);
+                return true;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+
+        private Fault takeFault(String u) {
+            if (injections.isEmpty()) return null;
+            for (Injection i : injections) {
+                if (u.startsWith(i.prefix) && injections.remove(i)) return i.fault;
+            }
+            return null;
+        }
+
+        private void inflict(Fault fault, String u) {
+            switch (fault) {
+                case DROP:
+                    close();
+                    break;
+                case STALL:
+                    stalled = true;
+                    break;
+                case ERR:
+                    if (state != State.HANDSHAKE) send(ackFor(u), Protocol.RESP_ERR + " Injected fault");
+                    else send(Protocol.RESP_ERR + " Injected fault");
+                    break;
+                case SWALLOW:
+                    break;
+            }
+        }
+
+        @Override
+        public void onAck(int code) {
+            // Client ACKs are only informational, as in the C server
+        }
+
+        @Override
+        public void onClosed(IOException cause) {
+        }
+
+        private void handle(String u) {
+            String cmd = Protocol.field(u, 0);
+            switch (state) {
+                case HANDSHAKE:
+                    if (cmd.equals(Protocol.CMD_HELLO)) hello(u);
+                    else batch.add(Protocol.RESP_ERR + " Invalid protocol header");
+                    break;
+                case LOBBY:
+                    lobby(cmd, u);
+                    break;
+                case WAITING:
+                    if (cmd.equals(Protocol.CMD_EXT)) leaveRoom();
+                    else batch.add(Protocol.RESP_ERR + " Unknown command");
+                    break;
+                case GAME:
+                    game(cmd, u);
+                    break;
+            }
+        }
+
+        private void hello(String u) {
+            String n = Protocol.field(u, 1);
+            if (n == null) return;
+            name = n;
+            String sid = Protocol.field(u, 2);
+            if (sid != null && !sid.startsWith("+")) id = sid;
+            int knownPly = -1;
+            String cap;
+            for (int i = 2; (cap = Protocol.field(u, i)) != null; i++) {
+                if (cap.equals(Protocol.CAP_BIN1)) offeredBinary = true;
+                else if (cap.equals(Protocol.CAP_DACK)) offeredDelayedAck = true;
+                else if (cap.startsWith(Protocol.HELLO_PLY)) knownPly = parsePly(cap);
+            }
+            if (offeredBinary) {
+                send(Protocol.PROTO_BIN1);
+                synchronized (this) { encoder = new BinaryCodec.Encoder(); }
+            }
+            if (offeredDelayedAck) batch.add(Protocol.PROTO_DACK);
+            if (resume(knownPly)) return;
+            if (refusing) {
+                batch.add(Protocol.RESP_FULL);
+                flushBatch();
+                close();
+                return;
+            }
+            batch.add(Protocol.ACK_HELLO);
+            enterLobby();
+        }
+
+        /**
+         * Takes back the seat this player left in an unfinished game, as the C server's
+         * match_reconnect does.
+         * @param knownPly Plies the client has from PLY=n, or -1.
+         * @return True if a seat was found and the game resumed.
+         */
+        private boolean resume(int knownPly) {
+            for (Room r : rooms.values()) {
+                synchronized (r) {
+                    Session old = r.white != null && r.white.heldFor(name, id) ? r.white
+                            : r.black != null && r.black.heldFor(name, id) ? r.black : null;
+                    if (r.finished || old == null) continue;
+                    old.releaseSeat();
+                    if (old == r.white) r.white = this;
+                    else r.black = this;
+                    room = r;
+                    color = old.color;
+                    state = State.GAME;
+                    Session opp = r.opponentOf(this);
+                    boolean oppHere = opp != null && !opp.gone;
+                    if (r.pausedAt != 0 && oppHere) {
+                        r.turnStart += System.nanoTime() - r.pausedAt;
+                        r.pausedAt = 0;
+                        armTurnClock(r);
+                    }
+                    String left = Protocol.RESP_TIME + " " + r.turnLeftSeconds();
+                    batch.add(Protocol.ACK_HELLO);
+                    batch.add(Protocol.RESP_RESUME + " " + (opp != null ? opp.name : "Unknown") + " " + (color == 0 ? "white" : "black"));
+                    if (knownPly >= 0 && knownPly <= r.moves.size()) {
+                        StringBuilder sb = new StringBuilder(Protocol.RESP_HISTORY_FROM).append(' ').append(knownPly);
+                        for (String mv : r.moves.subList(knownPly, r.moves.size())) sb.append(' ').append(mv);
+                        batch.add(sb.toString());
+                    } else if (!r.moves.isEmpty()) {
+                        batch.add(Protocol.RESP_HISTORY + " " + String.join(" ", r.moves));
+                    }
+                    batch.add(left);
+                    flushBatch();
+                    if (oppHere) opp.send(Protocol.RESP_OPP_RESUME + " " + name + " " + (color == 0 ? "black" : "white"), left);
+                }
+                return true;
+            }
+            return false;
+        }
+
+        /**
+         * True if this is a disconnected player's seat that the given player may take back.
+         */
+        private boolean heldFor(String n, String i) {
+            return gone && name.equals(n) && id.equals(i);
+        }
+
+        private void releaseSeat() {
+            if (graceTimeout != null) graceTimeout.cancel();
+            if (expiryTimeout != null) expiryTimeout.cancel();
+        }
+
+        private void enterLobby() {
+            state = State.LOBBY;
+            room = null;
+            color = -1;
+            batch.add(Protocol.RESP_LOBBY);
+        }
+
+        private void lobby(String cmd, String u) {
+            if (cmd.equals(Protocol.CMD_LIST)) {
+                StringBuilder sb = new StringBuilder(Protocol.RESP_ROOMLIST).append(' ');
+                int open = 0;
+                for (Room r : rooms.values()) {
+                    if (r.black == null && !r.finished) {
+                        sb.append(r.id).append(':').append(r.white.name).append(' ');
+                        open++;
+                    }
+                }
+                batch.add(open == 0 ? Protocol.RESP_ROOMLIST + " EMPTY" : sb.toString());
+            } else if (cmd.equals(Protocol.CMD_NEW)) {
+                room = new Room(nextRoomId.getAndIncrement(), this);
+                rooms.put(room.id, room);
+                color = 0;
+                state = State.WAITING;
+                batch.add(Protocol.RESP_WAITING + " Room " + room.id);
+            } else if (cmd.equals(Protocol.CMD_JOIN)) {
+                join(Protocol.field(u, 1));
+            } else if (cmd.equals(Protocol.CMD_EXT)) {
+                close();
+            } else {
+                batch.add(Protocol.RESP_ERR + " Unknown command");
+            }
+        }
+
+        private void join(String idText) {
+            Room r;
+            try {
+                r = rooms.get(Integer.parseInt(idText));
+            } catch (NumberFormatException e) {
+                r = null;
+            }
+            if (r == null) {
+                batch.add(Protocol.RESP_ERR + " Room full or closed");
+                return;
+            }
+            synchronized (r) {
+                if (r.black != null || r.finished) {
+                    batch.add(Protocol.RESP_ERR + " Room full or closed");
+                    return;
+                }
+                r.black = this;
+                r.turnSeconds = turnSeconds;
+                r.turnStart = System.nanoTime();
+                armTurnClock(r);
+            }
+            room = r;
+            color = 1;
+            state = State.GAME;
+            batch.add(Protocol.RESP_START + " " + r.white.name + " black");
+            batch.add(Protocol.RESP_TIME + " " + r.turnSeconds);
+            flushBatch(); // START must reach the guest before the host can move
+            r.white.startGame(name, r.turnSeconds);
+        }
+
+        /**
+         * Called on the host's session by the joining player's thread.
+         */
+        private synchronized void startGame(String opponent, int seconds) {
+            state = State.GAME;
+            send(Protocol.RESP_START + " " + opponent + " white", Protocol.RESP_TIME + " " + seconds);
+        }
+
+        private void game(String cmd, String u) {
+            Room r = room;
+            List<String> toOpp = new ArrayList<>(4);
+            synchronized (r) {
+                Session opp = r.opponentOf(this); // Under the lock: seats change on reconnect
+                if (r.finished) {
+                    // As in the C server: the player who did not end the game
+                    // goes back to the lobby with the next line they send
+                    enterLobby();
+                    return;
+                }
+                if (u.startsWith(Protocol.CMD_MV)) {
+                    String mv = u.substring(Protocol.CMD_MV.length()); // "MVe2e4", as the C server expects
+                    int m = r.turn == color ? r.board.findLegalMove(mv) : Move.NONE;
+                    if (r.turn != color) {
+                        batch.add(Protocol.RESP_ERR + " Not your turn");
+                    } else if (m == Move.NONE) {
+                        batch.add(Protocol.RESP_ERR + " Illegal Move");
+                    } else {
+                        r.board.makeMove(m);
+                        r.moves.add(mv);
+                        r.turn = 1 - r.turn;
+                        r.turnStart = System.nanoTime();
+                        if (r.pausedAt != 0) r.pausedAt = r.turnStart;
+                        armTurnClock(r);
+                        batch.add(Protocol.RESP_OK_MV);
+                        batch.add(Protocol.RESP_TIME + " " + r.turnSeconds);
+                        toOpp.add(Protocol.RESP_OPP_MV + " " + mv);
+                        toOpp.add(Protocol.RESP_TIME + " " + r.turnSeconds);
+                        // Same order as the C server: result after the move and TIME
+                        boolean check = r.board.isInCheck(r.turn);
+                        boolean stuck = r.board.generateLegalMoves(r.turn, r.legal) == 0;
+                        if (stuck) {
+                            r.finish();
+                            batch.add(check ? Protocol.RESP_WIN_CHKM : Protocol.RESP_SM);
+                            toOpp.add(check ? Protocol.RESP_CHKM : Protocol.RESP_SM);
+                        } else if (check) {
+                            toOpp.add(Protocol.RESP_CHK);
+                        }
+                    }
+                } else if (cmd.equals(Protocol.CMD_RES)) {
+                    r.finish();
+                    batch.add(Protocol.RESP_RES);
+                    toOpp.add(Protocol.RESP_OPP_RES);
+                } else if (cmd.equals(Protocol.CMD_DRW_OFF)) {
+                    toOpp.add(Protocol.RESP_DRW_OFF);
+                } else if (cmd.equals(Protocol.CMD_DRW_ACC)) {
+                    r.finish();
+                    batch.add(Protocol.RESP_DRW_ACD);
+                    toOpp.add(Protocol.RESP_DRW_ACD);
+                } else if (cmd.equals(Protocol.CMD_DRW_DEC)) {
+                    toOpp.add(Protocol.RESP_DRW_DCD);
+                } else if (cmd.equals(Protocol.CMD_EXT)) {
+                    r.finish();
+                    toOpp.add(Protocol.RESP_OPP_EXT);
+                } else {
+                    batch.add(Protocol.RESP_ERR + " Unknown command");
+                }
+                // Replies to the mover go out before anything reaches the opponent, as
+                // in the C server; otherwise an answer to OPP_MV could overtake OK_MV
+                flushBatch();
+                if (opp != null && !opp.gone && !toOpp.isEmpty()) opp.send(toOpp.toArray(new String[0]));
+            }
+            if (r.finished) {
+                rooms.remove(r.id);
+                enterLobby();
+            }
+        }
+
+        private void leaveRoom() {
+            Room r = room;
+            if (r != null) {
+                synchronized (r) { r.finish(); }
+                rooms.remove(r.id);
+            }
+            enterLobby();
+        }
+
+        /**
+         * A host waiting alone loses the room; a player in a game keeps the seat for
+         * the disconnect timeout, with the clock stopping after the grace period.
+         */
+        private void onDisconnect() {
+            Room r = room;
+            if (r == null) return;
+            synchronized (r) {
+                if (r.finished || !r.seated(this)) return;
+                if (r.black == null) {
+                    r.finish();
+                    rooms.remove(r.id);
+                    return;
+                }
+                gone = true;
+                graceTimeout = timer.newTimeout(() -> graceOver(r, this), TimeUnit.SECONDS.toMillis(GRACE_SECONDS));
+                expiryTimeout = timer.newTimeout(() -> abandoned(r, this), disconnectMillis);
+            }
+        }
+
+        private void close() {
+            try { socket.close(); } catch (IOException ignored) {}
+        }
+
+        private void flushBatch() {
+            if (batch.isEmpty()) return;
+            send(batch.toArray(new String[0]));
+            batch.clear();
+        }
+
+        /**
+         * Writes lines as one batch: text lines, or BIN1 frames with ACKs piggy-backed.
+         */
+        synchronized void send(String... lines) {
+            try {
+                if (encoder != null) {
+                    for (String l : lines) encoder.encode(l);
+                    encoder.finish();
+                    out.write(encoder.array(), 0, encoder.size());
+                    encoder.reset();
+                } else {
+                    for (String l : lines) {
+                        out.write(l.getBytes(StandardCharsets.UTF_8));
+                        out.write('\n');
+                    }
+                }
+                out.flush();
+            } catch (IOException e) {
+                close();
+            }
+        }
+    }
+
+    private static int parsePly(String token) {
+        try {
+            return Integer.parseInt(token.substring(Protocol.HELLO_PLY.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * The ACK code the C server sends for a client command.
+     */
+    static String ackFor(String cmd) {
+        if (cmd.startsWith(Protocol.CMD_HELLO)) return Protocol.ACK_HELLO;
+        if (cmd.startsWith(Protocol.RESP_LOBBY)) return Protocol.ACK_LOBBY;
+        if (cmd.startsWith(Protocol.CMD_LIST)) return Protocol.ACK_LIST;
+        if (cmd.startsWith(Protocol.CMD_NEW)) return Protocol.ACK_NEW_ROOM;
+        if (cmd.startsWith(Protocol.CMD_JOIN)) return Protocol.ACK_JOIN;
+        if (cmd.startsWith(Protocol.CMD_MV)) return Protocol.ACK_MOVE_CMD;
+        if (cmd.startsWith(Protocol.CMD_RES)) return Protocol.ACK_RESIGN_CS;
+        if (cmd.startsWith(Protocol.CMD_DRW_OFF)) return Protocol.ACK_DRW_OFF_CS;
+        if (cmd.startsWith(Protocol.CMD_DRW_ACC)) return Protocol.ACK_DRW_ACC_CS;
+        if (cmd.startsWith(Protocol.CMD_DRW_DEC)) return Protocol.ACK_DRW_DEC_CS;
+        if (cmd.startsWith(Protocol.CMD_EXT)) return Protocol.ACK_EXIT;
+        return Protocol.ACK_GENERIC;
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        StandInServer server = new StandInServer(port).start();
+        System.out.println("Stand-in server listening on port " + server.port());
+        try {
+            Thread.currentThread().join();
+        } catch (InterruptedException ignored) {
+            server.stop();
+        }
+    }
+}